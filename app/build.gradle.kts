@@ -1,3 +1,5 @@
+import java.util.concurrent.Callable
+
 plugins {
     alias(libs.plugins.android.application)
 }
@@ -44,4 +46,15 @@ dependencies {
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
-}
\ No newline at end of file
+}
+
+// Runs the scramble depth analysis in the unit test sources on the development machine, e.g.
+// ./gradlew :app:scrambleAnalysis --args="--rows 3 --cols 3 --depths 1-30 --out sweep.csv"
+tasks.register<JavaExec>("scrambleAnalysis") {
+    description = "Measures how deep the puzzles made by the scramble are"
+    dependsOn("compileDebugUnitTestJavaWithJavac")
+    mainClass.set("com.example.revolution.ScrambleAnalysis")
+    classpath = files(Callable { tasks.getByName<Test>("testDebugUnitTest").classpath })
+    // --out paths are relative to the project root
+    workingDir = rootProject.projectDir
+}
@@ -28,8 +28,11 @@ public class ActivityUtils {
     // keys used to preserve the game state across config changes
     private static final String ROWS = "rows";
     private static final String COLS = "cols";
-    private static final String NUM_MOVES = "moves";
-    private static final String MOVES = "move";
+    private static final String START = "start";
+    private static final String HISTORY_PARENTS = "historyParents";
+    private static final String HISTORY_MOVES = "historyMoves";
+    private static final String HISTORY_REDO = "historyRedo";
+    private static final String HISTORY_CURSOR = "historyCursor";
 
     /**
      * Sets the Buttons in the specified tableLayout
@@ -40,6 +43,9 @@ public class ActivityUtils {
         int cols = game.getCols();
         tableLayout.removeAllViews();
 
+        // Let tiles slide across row boundaries while a rotation is animated
+        tableLayout.setClipChildren(false);
+
         // Calculate size of each button to take up 90% of the width/height of the screen
         // depending on which is smaller so it fits better in different orientations
         int displayWidth = context.getResources().getDisplayMetrics().widthPixels;
@@ -50,6 +56,7 @@ public class ActivityUtils {
         for (int i = 0; i < rows; i++) {
             // Create a new row
             TableRow tableRow = new TableRow(context);
+            tableRow.setClipChildren(false);
 
             for (int j = 0; j < cols; j++) {
                 int index = i * cols + j;
@@ -75,9 +82,9 @@ public class ActivityUtils {
     }
 
     /**
-     * Fills ImageButtons to represent the game
+     * Fills ImageButtons to represent the game, or a replay of it
      */
-    public static void drawBoard(Revolution game, Button[] buttons) {
+    public static void drawBoard(Board game, Button[] buttons) {
         int rows = game.getRows();
         int cols = game.getCols();
 
@@ -138,18 +145,27 @@ public class ActivityUtils {
         bundle.putInt(ROWS, r);
         bundle.putInt(COLS, c);
 
-        // Save the number of moves
-        int numMoves = game.moves();
-        bundle.putInt(NUM_MOVES, numMoves);
-
-        // Create an array to hold the moves and add them to it
-        int[][][] movesArray = new int[numMoves][][];
-        for (int i = 0; i < numMoves; i++) {
-            movesArray[i] = game.moveAt(i);
+        // Save the starting grid row by row
+        int[][] start = game.getStartGrid();
+        int[] startArray = new int[r * c];
+        for (int i = 0; i < r; i++) {
+            System.arraycopy(start[i], 0, startArray, i * c, c);
         }
+        bundle.putIntArray(START, startArray);
+
+        // Save every line played, and where in them the game is
+        GameHistory.Snapshot history = game.getHistory();
+        bundle.putIntArray(HISTORY_PARENTS, history.getParents());
+        bundle.putIntArray(HISTORY_MOVES, history.getMoves());
+        bundle.putIntArray(HISTORY_REDO, history.getRedoChildren());
+        bundle.putInt(HISTORY_CURSOR, history.getCursor());
+    }
 
-        // Save the moves array in the Bundle
-        bundle.putSerializable(MOVES, movesArray);
+    /**
+     * @return true if the bundle holds a game written by saveGame
+     */
+    public static boolean hasSavedGame(Bundle bundle) {
+        return bundle != null && bundle.containsKey(START);
     }
 
     /**
@@ -160,28 +176,25 @@ public class ActivityUtils {
     public static Revolution getSavedGame(Bundle bundle) {
         int rows = bundle.getInt(ROWS);
         int cols = bundle.getInt(COLS);
-        int numMoves = bundle.getInt(NUM_MOVES);
-
-        // Create new game and reset gridStates so they properly can be restored here
-        // If don't reset states, the constructor will add a gridState automatically that isn't present
-        // in the saved games data
-        Revolution game = new Revolution(rows, cols, 0);
-        game.resetGridStates();
-
-        // Restore the moves
-        int[][][] movesArray = (int[][][]) bundle.getSerializable(MOVES);
-        if (movesArray != null) {
-            for (int i = 0; i < numMoves; i++) {
-                game.addMove(movesArray[i]);
-            }
+        int[] startArray = bundle.getIntArray(START);
+        int[] parents = bundle.getIntArray(HISTORY_PARENTS);
+        int[] moves = bundle.getIntArray(HISTORY_MOVES);
+        int[] redoChildren = bundle.getIntArray(HISTORY_REDO);
+
+        if (startArray == null || parents == null || moves == null || redoChildren == null) {
+            return new Revolution(rows, cols, 0);
         }
 
-        // Set the grid (current grid to be viewed) as the most recent moves
-        if (numMoves > 0 && movesArray != null) {
-            game.setGrid(movesArray[numMoves-1]);
+        // Restore the starting grid
+        int[][] start = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(startArray, i * cols, start[i], 0, cols);
         }
 
-        return game;
+        // Rebuild the history, and replay the current line on top of the grid
+        GameHistory.Snapshot history = new GameHistory.Snapshot(
+                parents, moves, redoChildren, bundle.getInt(HISTORY_CURSOR));
+        return new Revolution(start, history);
     }
 
 }
@@ -0,0 +1,18 @@
+package com.example.revolution;
+
+/**
+ * Read-only view of a Revolution grid, used for drawing the board
+ *
+ * @author Sam Kapp
+ */
+public interface Board {
+
+    int getRows();
+
+    int getCols();
+
+    /**
+     * @return the tile value at the given row and col
+     */
+    int get(int row, int col);
+}
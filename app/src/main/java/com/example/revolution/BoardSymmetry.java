@@ -0,0 +1,135 @@
+package com.example.revolution;
+
+/**
+ * Symmetries of a Revolution board, used to map a grid to one representative of
+ * all the grids equivalent to it
+ *
+ * A symmetry moves every tile to a new position and relabels it with the value that
+ * belongs at its new home, e.g. turning the whole board 180 degrees, or mirroring it
+ * (which turns every rotateRight into a rotateLeft). Every 2x2 subgrid maps to a
+ * 2x2 subgrid and the solved grid maps to itself, so equivalent grids are the same
+ * number of moves from solved. Rectangular boards have 4 symmetries, square boards 8.
+ *
+ * @author Sam Kapp
+ */
+public class BoardSymmetry {
+    /** Largest board whose canonical form fits in a long key, 4 bits per tile */
+    public static final int MAX_KEY_CELLS = 16;
+
+    private final int rows;
+    private final int cols;
+    private final int[][] maps; // maps[s][p] is where symmetry s sends position p (row-major)
+
+    public BoardSymmetry(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+
+        int count = rows == cols ? 8 : 4;
+        maps = new int[count][rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int p = i * cols + j;
+                int r = rows - 1 - i; // mirrored row
+                int c = cols - 1 - j; // mirrored col
+
+                maps[0][p] = p;            // identity
+                maps[1][p] = r * cols + c; // half turn
+                maps[2][p] = i * cols + c; // left-right mirror
+                maps[3][p] = r * cols + j; // top-bottom mirror
+                if (count == 8) {
+                    maps[4][p] = j * cols + i; // transpose
+                    maps[5][p] = c * cols + r; // anti-transpose
+                    maps[6][p] = j * cols + r; // quarter turn
+                    maps[7][p] = c * cols + i; // three quarter turn
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of symmetries, including the identity
+     */
+    public int size() { return maps.length; }
+
+    /**
+     * Returns a key identifying the symmetry class of the grid: the smallest of the
+     * grid's symmetric images, packed 4 bits per tile in row-major order. Two grids
+     * have the same key exactly when they are symmetric to each other.
+     *
+     * Only for boards of up to MAX_KEY_CELLS tiles, see canonicalForm for larger ones.
+     */
+    public long canonicalKey(int[][] grid) {
+        checkKeySize();
+        int cells = rows * cols;
+        long best = 0;
+
+        for (int[] map : maps) {
+            long key = 0;
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    int p = map[i * cols + j];
+                    long tile = map[grid[i][j] - 1];
+                    key |= tile << (4 * (cells - 1 - p));
+                }
+            }
+            // 16 tiles use the sign bit, so compare as unsigned
+            if (map == maps[0] || Long.compareUnsigned(key, best) < 0) {
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the grid with the given canonical key into grid
+     */
+    public void decodeKey(long key, int[][] grid) {
+        int cells = rows * cols;
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int shift = 4 * (cells - 1 - (i * cols + j));
+                grid[i][j] = (int) ((key >>> shift) & 0xF) + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest of the grid's symmetric images as a row-major array, for
+     * boards of any size. Two grids have equal canonical forms exactly when they are
+     * symmetric to each other.
+     */
+    public int[] canonicalForm(int[][] grid) {
+        int cells = rows * cols;
+        int[] best = null;
+        int[] image = new int[cells];
+
+        for (int[] map : maps) {
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    image[map[i * cols + j]] = map[grid[i][j] - 1] + 1;
+                }
+            }
+            if (best == null || compare(image, best) < 0) {
+                int[] previous = best;
+                best = image;
+                image = previous == null ? new int[cells] : previous;
+            }
+        }
+        return best;
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) return Integer.compare(a[i], b[i]);
+        }
+        return 0;
+    }
+
+    private void checkKeySize() {
+        if (rows * cols > MAX_KEY_CELLS) {
+            throw new IllegalArgumentException(
+                    rows + "x" + cols + " board has too many tiles for a long key");
+        }
+    }
+}
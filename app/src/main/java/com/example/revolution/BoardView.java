@@ -0,0 +1,327 @@
+package com.example.revolution;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Draws a large board through a pannable, zoomable viewport
+ *
+ * Only the cells inside the viewport are drawn and hit-tested, so the cost of a frame
+ * depends on what is on screen rather than on the size of the board. Labels are
+ * created the first time a cell is drawn with text and kept afterwards, and the text
+ * is only resized when the zoom crosses into a new zoom level. When zoomed out far
+ * enough that labels would be unreadable, tiles are drawn as plain colors, shaded by
+ * their home position.
+ *
+ * @author Sam Kapp
+ */
+public class BoardView extends View {
+    private static final float MAX_CELL_FRACTION = 1 / 3f; // of the smaller view side
+    private static final float WIDTH_FRACTION = 0.9f;      // of the screen, when not constrained
+    private static final float HEIGHT_FRACTION = 0.6f;
+    private static final float LABEL_MIN_CELL_DP = 24;     // below this, tiles are color-only
+    private static final float MARGIN_FRACTION = 0.04f;   // gap between cells
+    private static final float ZOOM_LEVELS_PER_DOUBLING = 4; // text is resized between levels
+
+    /**
+     * Called when a cell of the board is tapped
+     */
+    public interface OnCellTapListener {
+        void onCellTap(int row, int col);
+    }
+
+    private Board board;
+    private OnCellTapListener listener;
+    private int anchorRow = -1;
+    private int anchorCol = -1;
+
+    // Viewport: screen position of the board's top left corner, and size of a cell
+    private float offsetX;
+    private float offsetY;
+    private float cellSize;
+    private float minCellSize;
+    private float maxCellSize;
+
+    // Caches, filled in as cells are first drawn
+    private String[] labels;
+    private int[] tileColors;
+    private int textZoomLevel = Integer.MIN_VALUE; // zoom level the label paint is sized for
+    private float textBaseline;  // offset from a cell's center to the label baseline
+    private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+    private final float[] hsv = {0f, 0.55f, 0.9f};
+
+    private final Paint tilePaint = new Paint();
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final int tileColor;
+    private final int highlightColor;
+    private final float labelMinCellSize;
+
+    private final GestureDetector gestureDetector;
+    private final ScaleGestureDetector scaleDetector;
+
+    public BoardView(Context context) {
+        this(context, null);
+    }
+
+    public BoardView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+
+        tileColor = ContextCompat.getColor(context, R.color.button_background);
+        highlightColor = ContextCompat.getColor(context, R.color.highlight_color);
+        labelMinCellSize = LABEL_MIN_CELL_DP * getResources().getDisplayMetrics().density;
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setColor(Color.BLACK);
+
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(@NonNull MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(@Nullable MotionEvent e1, @NonNull MotionEvent e2,
+                                    float distanceX, float distanceY) {
+                offsetX -= distanceX;
+                offsetY -= distanceY;
+                clampOffsets();
+                invalidate();
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(@NonNull MotionEvent e) {
+                return tapAt(e.getX(), e.getY());
+            }
+        });
+
+        scaleDetector = new ScaleGestureDetector(context,
+                new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(@NonNull ScaleGestureDetector detector) {
+                zoom(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Shows the given board, zoomed out to fit the view if its size changed
+     */
+    public void setBoard(Board board) {
+        boolean resized = this.board == null || labels == null
+                || board.getRows() != this.board.getRows() || board.getCols() != this.board.getCols();
+        this.board = board;
+
+        if (resized) {
+            labels = new String[board.getRows() * board.getCols()];
+            tileColors = new int[labels.length];
+            anchorRow = -1;
+            anchorCol = -1;
+            fitBoard();
+        }
+        invalidate();
+    }
+
+    public void setOnCellTapListener(OnCellTapListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Highlights the 2x2 subgrid anchored at the given cell
+     */
+    public void setAnchor(int row, int col) {
+        anchorRow = row;
+        anchorCol = col;
+        invalidate();
+    }
+
+    /**
+     * Measures as a square taking most of the screen, leaving room for the controls
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int displayWidth = getResources().getDisplayMetrics().widthPixels;
+        int displayHeight = getResources().getDisplayMetrics().heightPixels;
+        int side = (int) Math.min(WIDTH_FRACTION * displayWidth, HEIGHT_FRACTION * displayHeight);
+
+        setMeasuredDimension(resolveSize(side, widthMeasureSpec), resolveSize(side, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        fitBoard();
+    }
+
+    /**
+     * Zooms all the way out, so the whole board is on screen and centered
+     */
+    private void fitBoard() {
+        if (board == null || getWidth() == 0 || getHeight() == 0) return;
+
+        int rows = board.getRows();
+        int cols = board.getCols();
+        minCellSize = Math.min((float) getWidth() / cols, (float) getHeight() / rows);
+        maxCellSize = Math.max(minCellSize, Math.min(getWidth(), getHeight()) * MAX_CELL_FRACTION);
+        cellSize = minCellSize;
+        offsetX = (getWidth() - cols * cellSize) / 2;
+        offsetY = (getHeight() - rows * cellSize) / 2;
+    }
+
+    /**
+     * Scales the cells by the given factor, keeping the point under the focus still
+     */
+    private void zoom(float factor, float focusX, float focusY) {
+        float newSize = Math.max(minCellSize, Math.min(maxCellSize, cellSize * factor));
+        float applied = newSize / cellSize;
+
+        offsetX = focusX - (focusX - offsetX) * applied;
+        offsetY = focusY - (focusY - offsetY) * applied;
+        cellSize = newSize;
+        clampOffsets();
+        invalidate();
+    }
+
+    /**
+     * Keeps the board covering the view, or centered along an axis where it is smaller
+     */
+    private void clampOffsets() {
+        float boardWidth = board.getCols() * cellSize;
+        float boardHeight = board.getRows() * cellSize;
+
+        offsetX = boardWidth <= getWidth() ? (getWidth() - boardWidth) / 2
+                : Math.max(getWidth() - boardWidth, Math.min(0, offsetX));
+        offsetY = boardHeight <= getHeight() ? (getHeight() - boardHeight) / 2
+                : Math.max(getHeight() - boardHeight, Math.min(0, offsetY));
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (board == null || cellSize <= 0) return false;
+
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+        return handled || super.onTouchEvent(event);
+    }
+
+    /**
+     * Finds the cell under the given point from the viewport alone
+     */
+    private boolean tapAt(float x, float y) {
+        int col = (int) Math.floor((x - offsetX) / cellSize);
+        int row = (int) Math.floor((y - offsetY) / cellSize);
+        if (row < 0 || col < 0 || row >= board.getRows() || col >= board.getCols()) return false;
+
+        performClick();
+        if (listener != null) {
+            listener.onCellTap(row, col);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (board == null || cellSize <= 0) return;
+
+        int rows = board.getRows();
+        int cols = board.getCols();
+
+        // Only the cells overlapping the view
+        int firstRow = Math.max(0, (int) Math.floor(-offsetY / cellSize));
+        int lastRow = Math.min(rows - 1, (int) Math.floor((getHeight() - offsetY) / cellSize));
+        int firstCol = Math.max(0, (int) Math.floor(-offsetX / cellSize));
+        int lastCol = Math.min(cols - 1, (int) Math.floor((getWidth() - offsetX) / cellSize));
+
+        boolean drawLabels = cellSize >= labelMinCellSize;
+        if (drawLabels) {
+            int zoomLevel = Math.round(ZOOM_LEVELS_PER_DOUBLING
+                    * (float) (Math.log(cellSize) / Math.log(2)));
+            if (zoomLevel != textZoomLevel) {
+                sizeLabels(zoomLevel);
+            }
+        }
+        float margin = cellSize * MARGIN_FRACTION;
+
+        for (int i = firstRow; i <= lastRow; i++) {
+            float top = offsetY + i * cellSize;
+            for (int j = firstCol; j <= lastCol; j++) {
+                float left = offsetX + j * cellSize;
+                int value = board.get(i, j);
+
+                boolean highlighted = anchorRow >= 0
+                        && i - anchorRow >= 0 && i - anchorRow <= 1
+                        && j - anchorCol >= 0 && j - anchorCol <= 1;
+                if (highlighted) {
+                    tilePaint.setColor(highlightColor);
+                } else {
+                    tilePaint.setColor(drawLabels ? tileColor : colorOf(value));
+                }
+                canvas.drawRect(left + margin, top + margin,
+                        left + cellSize - margin, top + cellSize - margin, tilePaint);
+
+                if (drawLabels) {
+                    canvas.drawText(labelOf(value), left + cellSize / 2,
+                            top + cellSize / 2 + textBaseline, textPaint);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sizes the label text for the given zoom level, so the widest label fits in a cell
+     */
+    private void sizeLabels(int zoomLevel) {
+        float levelCellSize = (float) Math.pow(2, zoomLevel / ZOOM_LEVELS_PER_DOUBLING);
+        int digits = String.valueOf(labels.length).length();
+        textPaint.setTextSize(Math.min(levelCellSize / 2, levelCellSize * 0.8f / (0.6f * digits)));
+
+        textPaint.getFontMetrics(fontMetrics);
+        textBaseline = -(fontMetrics.ascent + fontMetrics.descent) / 2;
+        textZoomLevel = zoomLevel;
+    }
+
+    /**
+     * @return the label of the tile, created on first use
+     */
+    private String labelOf(int value) {
+        String label = labels[value - 1];
+        if (label == null) {
+            label = String.valueOf(value);
+            labels[value - 1] = label;
+        }
+        return label;
+    }
+
+    /**
+     * @return the zoomed-out color of the tile, shaded by its home position
+     */
+    private int colorOf(int value) {
+        int color = tileColors[value - 1];
+        if (color == 0) {
+            int cols = board.getCols();
+            int home = value - 1;
+            hsv[0] = 300f * (home % cols) / Math.max(1, cols - 1);
+            hsv[2] = 0.95f - 0.5f * (home / cols) / Math.max(1, board.getRows() - 1);
+            color = Color.HSVToColor(hsv);
+            tileColors[value - 1] = color;
+        }
+        return color;
+    }
+}
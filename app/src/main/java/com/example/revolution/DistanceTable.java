@@ -0,0 +1,173 @@
+package com.example.revolution;
+
+/**
+ * Exact number of moves from every grid of a small board to the solved grid
+ *
+ * Built by a breadth-first search out from the solved grid. Grids are stored by their
+ * canonical key (see BoardSymmetry), so each symmetry class is stored and searched
+ * only once, which cuts the table and the search by the number of symmetries. Keys
+ * and distances live in one open-addressing table, without boxing.
+ *
+ * @author Sam Kapp
+ */
+public class DistanceTable {
+    /** Largest board the table can be built for, e.g. 3x3 or 2x4 */
+    public static final int MAX_CELLS = 9;
+
+    private static final int UNKNOWN = -1;
+
+    private final int rows;
+    private final int cols;
+    private final BoardSymmetry symmetry;
+
+    private final long[] keys;      // 0 marks an empty slot, no grid has key 0
+    private final byte[] distances; // parallel to keys
+    private final int mask;
+    private int size;
+    private int maxDistance;
+
+    /**
+     * Builds the table for the given board size
+     */
+    public DistanceTable(int rows, int cols) {
+        if (rows < 2 || cols < 2 || rows * cols > MAX_CELLS) {
+            throw new IllegalArgumentException(
+                    "can't build a distance table for a " + rows + "x" + cols + " board");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.symmetry = new BoardSymmetry(rows, cols);
+
+        // Room for every grid's class at under half load; n! / symmetries classes at least
+        int cells = rows * cols;
+        long grids = 1;
+        for (int i = 2; i <= cells; i++) grids *= i;
+        int capacity = Integer.highestOneBit((int) (2 * grids / symmetry.size() + 16)) << 1;
+        keys = new long[capacity];
+        distances = new byte[capacity];
+        mask = capacity - 1;
+
+        search();
+    }
+
+    /**
+     * Breadth-first search from the solved grid, one distance at a time
+     */
+    private void search() {
+        int[][] grid = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                grid[i][j] = i * cols + j + 1;
+            }
+        }
+
+        long[] frontier = {symmetry.canonicalKey(grid)};
+        int frontierSize = 1;
+        put(frontier[0], 0);
+
+        for (int distance = 1; frontierSize > 0; distance++) {
+            long[] next = new long[Math.max(16, frontierSize * 2)];
+            int nextSize = 0;
+
+            for (int f = 0; f < frontierSize; f++) {
+                symmetry.decodeKey(frontier[f], grid);
+
+                // Try every rotation, taking it back afterwards
+                for (int row = 0; row < rows - 1; row++) {
+                    for (int col = 0; col < cols - 1; col++) {
+                        for (int dir = 0; dir < 2; dir++) {
+                            int move = Revolution.encodeMove(row, col, dir == 1);
+                            Revolution.applyMove(grid, move);
+                            long key = symmetry.canonicalKey(grid);
+                            Revolution.applyMove(grid, Revolution.inverseMove(move));
+
+                            if (slot(key) >= 0) continue;
+                            put(key, distance);
+                            if (nextSize == next.length) {
+                                long[] grown = new long[next.length * 2];
+                                System.arraycopy(next, 0, grown, 0, nextSize);
+                                next = grown;
+                            }
+                            next[nextSize++] = key;
+                        }
+                    }
+                }
+            }
+
+            if (nextSize > 0) maxDistance = distance;
+            frontier = next;
+            frontierSize = nextSize;
+        }
+    }
+
+    /**
+     * @return the number of moves from the grid to the solved grid
+     */
+    public int distance(int[][] grid) {
+        int slot = slot(symmetry.canonicalKey(grid));
+        return slot < 0 ? UNKNOWN : distances[slot];
+    }
+
+    /**
+     * Returns a number in [0, capacity()) identifying the grid's symmetry class, e.g.
+     * for counting the distinct classes seen in a bitset
+     */
+    public int classIndex(int[][] grid) {
+        return slot(symmetry.canonicalKey(grid));
+    }
+
+    /**
+     * @return the upper bound (exclusive) of classIndex
+     */
+    public int capacity() { return keys.length; }
+
+    /**
+     * @return the number of symmetry classes stored
+     */
+    public int size() { return size; }
+
+    /**
+     * @return the number of moves needed for the hardest grid on this board
+     */
+    public int maxDistance() { return maxDistance; }
+
+    /**
+     * @return the number of symmetry classes the given distance from solved
+     */
+    public int classesAt(int distance) {
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && distances[i] == distance) count++;
+        }
+        return count;
+    }
+
+    public BoardSymmetry getSymmetry() { return symmetry; }
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+
+    /**
+     * @return the slot holding the key, or -1 if it isn't in the table
+     */
+    private int slot(long key) {
+        for (int i = hash(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+            if (keys[i] == 0) return -1;
+        }
+    }
+
+    private void put(long key, int distance) {
+        int i = hash(key);
+        while (keys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        distances[i] = (byte) distance;
+        size++;
+    }
+
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
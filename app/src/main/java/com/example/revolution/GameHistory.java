@@ -0,0 +1,362 @@
+package com.example.revolution;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * Branching undo/redo history of a game of Revolution
+ *
+ * Each node holds only the move that led to it and a pointer to its parent, so
+ * branches share their common prefix and no grids are copied. Undo and redo move a
+ * cursor through the tree; making a move after undoing starts a new branch instead
+ * of erasing the old one. When the tree grows past maxNodes, the least recently
+ * visited branches off the current line are pruned. The whole tree can be saved as
+ * a Snapshot of parallel arrays and restored from it.
+ *
+ * @author Sam Kapp
+ */
+public class GameHistory {
+    public static final int NO_MOVE = -1;
+    public static final int DEFAULT_MAX_NODES = 10_000;
+
+    /**
+     * A position in the history
+     */
+    private static final class Node {
+        private final Node parent;
+        private final int move;  // packed move leading here, NO_MOVE for the root
+        private final int depth; // number of moves from the start
+        private ArrayList<Node> children; // created on first use
+        private Node redoChild;  // child redo() goes to
+        private long lastVisit;
+        private long pathStamp;  // equals the history's stamp while on the current line
+        private int index;       // position in the last snapshot taken
+
+        private Node(Node parent, int move) {
+            this.parent = parent;
+            this.move = move;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        private boolean isLeaf() {
+            return children == null || children.isEmpty();
+        }
+    }
+
+    /**
+     * The whole tree as parallel arrays, e.g. for a Bundle or a file. Positions are
+     * numbered depth first, so each comes after its parent and siblings keep their
+     * order; position 0 is the start.
+     */
+    public static final class Snapshot {
+        private final int[] parents;      // parent of each position, -1 for the start
+        private final int[] moves;        // move leading to each position
+        private final int[] redoChildren; // child redo() goes to from each position, or -1
+        private final int cursor;
+
+        /**
+         * @throws IllegalArgumentException if the arrays don't describe a tree
+         */
+        public Snapshot(int[] parents, int[] moves, int[] redoChildren, int cursor) {
+            int size = parents.length;
+            if (size == 0 || moves.length != size || redoChildren.length != size) {
+                throw new IllegalArgumentException("history arrays differ in length");
+            }
+            if (parents[0] != -1 || cursor < 0 || cursor >= size) {
+                throw new IllegalArgumentException("history has no start or cursor");
+            }
+            for (int i = 1; i < size; i++) {
+                if (parents[i] < 0 || parents[i] >= i || moves[i] < 0) {
+                    throw new IllegalArgumentException("invalid history position " + i);
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                int child = redoChildren[i];
+                if (child != -1 && (child <= i || child >= size || parents[child] != i)) {
+                    throw new IllegalArgumentException("invalid redo child of position " + i);
+                }
+            }
+            this.parents = parents;
+            this.moves = moves;
+            this.redoChildren = redoChildren;
+            this.cursor = cursor;
+        }
+
+        public int[] getParents() { return parents; }
+        public int[] getMoves() { return moves; }
+        public int[] getRedoChildren() { return redoChildren; }
+        public int getCursor() { return cursor; }
+    }
+
+    private final Node root = new Node(null, NO_MOVE);
+    private Node cursor = root;
+    private int size = 1;
+    private int maxNodes;
+    private int pruneAt; // size that triggers the next prune
+    private long clock;
+    private long stamp;
+
+    /**
+     * Default Constructor
+     */
+    public GameHistory() {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Explicit Constructor
+     *
+     * @param maxNodes the number of moves kept before cold branches are pruned
+     */
+    public GameHistory(int maxNodes) {
+        setMaxNodes(maxNodes);
+    }
+
+    /**
+     * Constructor for restoring a saved history. The current line is marked as the
+     * most recently visited, the rest in the order of the snapshot.
+     */
+    public GameHistory(Snapshot snapshot) {
+        int[] parents = snapshot.parents;
+        Node[] nodes = new Node[parents.length];
+        nodes[0] = root;
+        for (int i = 1; i < nodes.length; i++) {
+            Node parent = nodes[parents[i]];
+            Node node = new Node(parent, snapshot.moves[i]);
+            if (parent.children == null) {
+                parent.children = new ArrayList<>(2);
+            }
+            parent.children.add(node);
+            node.lastVisit = ++clock;
+            nodes[i] = node;
+        }
+        size = nodes.length;
+
+        for (int i = 0; i < nodes.length; i++) {
+            int child = snapshot.redoChildren[i];
+            nodes[i].redoChild = child == -1 ? null : nodes[child];
+        }
+
+        cursor = nodes[snapshot.cursor];
+        for (Node node = cursor; node != null; node = node.parent) {
+            node.lastVisit = ++clock;
+        }
+        setMaxNodes(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Records a move made from the current position. Following a move that already
+     * exists in the tree reuses that branch.
+     */
+    public void push(int move) {
+        Node next = findChild(cursor, move);
+        if (next == null) {
+            next = new Node(cursor, move);
+            if (cursor.children == null) {
+                cursor.children = new ArrayList<>(2);
+            }
+            cursor.children.add(next);
+            size++;
+        }
+        cursor.redoChild = next;
+        moveCursor(next);
+
+        if (size > pruneAt) {
+            prune();
+        }
+    }
+
+    /**
+     * Steps the cursor back one move
+     *
+     * @return the move that was taken back, or NO_MOVE if at the start
+     */
+    public int undo() {
+        if (cursor == root) return NO_MOVE;
+
+        int move = cursor.move;
+        cursor.parent.redoChild = cursor;
+        moveCursor(cursor.parent);
+        return move;
+    }
+
+    /**
+     * Steps the cursor forward along the most recently used branch
+     *
+     * @return the move that was redone, or NO_MOVE if there is nothing to redo
+     */
+    public int redo() {
+        Node next = cursor.redoChild;
+        if (next == null) return NO_MOVE;
+
+        moveCursor(next);
+        return next.move;
+    }
+
+    /**
+     * Steps the cursor forward along the given branch
+     *
+     * @return the move that was redone, or NO_MOVE if there is no such branch
+     */
+    public int redo(int branch) {
+        if (branch < 0 || branch >= branches()) return NO_MOVE;
+
+        cursor.redoChild = cursor.children.get(branch);
+        return redo();
+    }
+
+    /**
+     * @return the moves from the start to the current position
+     */
+    public int[] line() {
+        int[] moves = new int[cursor.depth];
+        for (Node node = cursor; node != root; node = node.parent) {
+            moves[node.depth - 1] = node.move;
+        }
+        return moves;
+    }
+
+    /**
+     * @return the branch redo() follows from the current position, or -1 if there is none
+     */
+    public int redoBranch() {
+        return cursor.redoChild == null ? -1 : cursor.children.indexOf(cursor.redoChild);
+    }
+
+    /**
+     * @return the whole tree, see Snapshot
+     */
+    public Snapshot snapshot() {
+        int[] parents = new int[size];
+        int[] moves = new int[size];
+        int[] redoChildren = new int[size];
+
+        // Depth first, pushing children in reverse so they are numbered in order
+        ArrayList<Node> stack = new ArrayList<>();
+        stack.add(root);
+        int next = 0;
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            node.index = next++;
+            parents[node.index] = node.parent == null ? -1 : node.parent.index;
+            moves[node.index] = node.move;
+            if (node.children != null) {
+                for (int i = node.children.size() - 1; i >= 0; i--) {
+                    stack.add(node.children.get(i));
+                }
+            }
+        }
+
+        // Every index is set now, so the redo children can be looked up
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            redoChildren[node.index] = node.redoChild == null ? -1 : node.redoChild.index;
+            if (node.children != null) {
+                stack.addAll(node.children);
+            }
+        }
+        return new Snapshot(parents, moves, redoChildren, cursor.index);
+    }
+
+    /**
+     * @return the move that led to the current position, or NO_MOVE if at the start
+     */
+    public int lastMove() { return cursor.move; }
+
+    /**
+     * @return the number of moves from the start to the current position
+     */
+    public int depth() { return cursor.depth; }
+
+    /**
+     * @return the number of branches that can be redone from the current position
+     */
+    public int branches() {
+        return cursor.children == null ? 0 : cursor.children.size();
+    }
+
+    /**
+     * @return the number of positions stored, including the start
+     */
+    public int size() { return size; }
+
+    /**
+     * Sets the number of positions kept before cold branches are pruned. The current
+     * line is never pruned, so it may grow past this limit on its own.
+     */
+    public void setMaxNodes(int maxNodes) {
+        if (maxNodes < 1) {
+            throw new IllegalArgumentException("maxNodes must be positive");
+        }
+        this.maxNodes = maxNodes;
+        this.pruneAt = maxNodes;
+        if (size > maxNodes) {
+            prune();
+        }
+    }
+
+    /**
+     * @return the child of node reached by the given move, or null
+     */
+    private static Node findChild(Node node, int move) {
+        if (node.children == null) return null;
+
+        for (Node child : node.children) {
+            if (child.move == move) return child;
+        }
+        return null;
+    }
+
+    private void moveCursor(Node node) {
+        cursor = node;
+        node.lastVisit = ++clock;
+    }
+
+    /**
+     * Removes the least recently visited leaves off the current line until the
+     * tree is a quarter below maxNodes, so pruning runs rarely. If the current line
+     * alone is too long to get there, the next prune waits until the tree has grown by
+     * a quarter of maxNodes or of its own size, whichever is larger, so long games
+     * don't walk the whole tree on every move.
+     */
+    private void prune() {
+        int target = maxNodes - maxNodes / 4;
+
+        // Mark the current line so it is never pruned
+        stamp++;
+        for (Node node = cursor; node != null; node = node.parent) {
+            node.pathStamp = stamp;
+        }
+
+        // Gather the leaves off the current line, coldest first
+        PriorityQueue<Node> leaves = new PriorityQueue<>(
+                (a, b) -> Long.compare(a.lastVisit, b.lastVisit));
+        ArrayList<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            if (node.isLeaf()) {
+                if (node.pathStamp != stamp) leaves.add(node);
+            } else {
+                stack.addAll(node.children);
+            }
+        }
+
+        // Removing a leaf may leave its parent as a leaf to consider next
+        while (size > target && !leaves.isEmpty()) {
+            Node leaf = leaves.poll();
+            Node parent = leaf.parent;
+            parent.children.remove(leaf);
+            if (parent.redoChild == leaf) {
+                parent.redoChild = parent.children.isEmpty() ? null : parent.children.get(0);
+            }
+            size--;
+
+            if (parent.isLeaf() && parent.pathStamp != stamp) {
+                leaves.add(parent);
+            }
+        }
+        pruneAt = Math.max(maxNodes, size + Math.max(maxNodes, size) / 4);
+    }
+}
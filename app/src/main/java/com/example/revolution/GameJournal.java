@@ -0,0 +1,386 @@
+package com.example.revolution;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only autosave journal of a game of Revolution
+ *
+ * The journal file starts with a snapshot (starting grid and the whole history tree,
+ * see GameHistory.Snapshot), followed by one int per move or undo made since. Entries
+ * are handed to a
+ * shared background thread, which appends them through a FileChannel, so saving a move
+ * costs the same no matter how long the game is. After COMPACT_INTERVAL entries the
+ * file is replaced by a fresh snapshot. A torn entry at the end of the file, e.g.
+ * from a crash mid-write, is ignored by recover(), which reads the file on the writer
+ * thread too, so it sees everything queued before it without blocking the caller.
+ *
+ * @author Sam Kapp
+ */
+public class GameJournal {
+    private static final String TAG = "GameJournal";
+    private static final String FILE_NAME = "journal.bin";
+    private static final String TEMP_FILE_NAME = "journal.tmp";
+
+    private static final int MAGIC = 0x52455633; // "REV3"
+    private static final int UNDO = GameHistory.NO_MOVE; // packed moves are never negative
+    private static final int COMPACT_INTERVAL = 512;
+    private static final int MAX_CELLS = 1 << 20;
+    private static final int MAX_POSITIONS = 1 << 24;
+    private static final int BUFFER_BYTES = 4096;
+
+    // Shared by every journal, so one being closed and another started in its place
+    // (e.g. when the activity is recreated) never touch the file at the same time
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Called with the game read by recover()
+     */
+    public interface RecoveryListener {
+        /**
+         * @param game the saved game, or null if there is no usable journal
+         */
+        void onRecovered(Revolution game);
+    }
+
+    private final File file;
+    private final File tempFile;
+    private final Runnable writePending = this::writePending;
+
+    // Snapshot and entries waiting for the writer thread, guarded by this
+    private int[][] pendingStart; // non-null when a snapshot is waiting
+    private GameHistory.Snapshot pendingHistory;
+    private int[] pending = new int[64];
+    private int[] draining = new int[64];
+    private int pendingCount;
+    private boolean scheduled;
+
+    private int entriesSinceSnapshot; // only used on the calling thread
+
+    // Only used on the writer thread
+    private FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    /**
+     * @param dir the directory holding the journal, e.g. Context.getFilesDir()
+     */
+    public GameJournal(File dir) {
+        file = new File(dir, FILE_NAME);
+        tempFile = new File(dir, TEMP_FILE_NAME);
+    }
+
+    /**
+     * Starts the journal over with a snapshot of the given game
+     */
+    public void start(Revolution game) {
+        int[][] start = game.getStartGrid();
+        GameHistory.Snapshot history = game.getHistory();
+
+        entriesSinceSnapshot = 0;
+        boolean schedule;
+        synchronized (this) {
+            // the snapshot already covers any entries not yet written
+            pendingStart = start;
+            pendingHistory = history;
+            pendingCount = 0;
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            writer.execute(writePending);
+        }
+    }
+
+    /**
+     * Appends the move just made (or redone) in the given game
+     */
+    public void recordMove(Revolution game) {
+        record(game, game.lastMove());
+    }
+
+    /**
+     * Appends an undo just made in the given game
+     */
+    public void recordUndo(Revolution game) {
+        record(game, UNDO);
+    }
+
+    /**
+     * Hands an entry to the writer thread, or compacts the journal if enough
+     * entries have been appended since the last snapshot
+     */
+    private void record(Revolution game, int entry) {
+        if (++entriesSinceSnapshot >= COMPACT_INTERVAL) {
+            start(game);
+            return;
+        }
+
+        boolean schedule;
+        synchronized (this) {
+            if (pendingCount == pending.length) {
+                int[] grown = new int[pending.length * 2];
+                System.arraycopy(pending, 0, grown, 0, pendingCount);
+                pending = grown;
+            }
+            pending[pendingCount++] = entry;
+
+            // the writer drains everything pending, so one task per batch is enough
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            writer.execute(writePending);
+        }
+    }
+
+    /**
+     * Forces everything written so far to the disk, e.g. when the app goes to the background
+     */
+    public void flush() {
+        writer.execute(() -> {
+            try {
+                if (channel != null) channel.force(false);
+            } catch (IOException e) {
+                Log.w(TAG, "could not sync journal", e);
+            }
+        });
+    }
+
+    /**
+     * Closes the journal file once everything pending is written
+     */
+    public void close() {
+        writer.execute(this::closeChannel);
+    }
+
+    /**
+     * Writes the pending snapshot, if any, then appends the pending entries to the
+     * journal file (writer thread)
+     */
+    private void writePending() {
+        int[][] start;
+        GameHistory.Snapshot history;
+        int[] entries;
+        int count;
+        synchronized (this) {
+            start = pendingStart;
+            history = pendingHistory;
+            pendingStart = null;
+            pendingHistory = null;
+            entries = pending;
+            pending = draining;
+            draining = entries;
+            count = pendingCount;
+            pendingCount = 0;
+            scheduled = false;
+        }
+
+        if (start != null) {
+            writeSnapshot(start, history);
+        }
+        if (channel == null) return;
+
+        try {
+            for (int i = 0; i < count; i++) {
+                if (!buffer.hasRemaining()) {
+                    drainBuffer();
+                }
+                buffer.putInt(entries[i]);
+            }
+            drainBuffer();
+        } catch (IOException e) {
+            Log.w(TAG, "could not append to journal", e);
+            buffer.clear();
+        }
+    }
+
+    private void drainBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes a snapshot to a temporary file and swaps it in for the journal (writer thread)
+     */
+    private void writeSnapshot(int[][] start, GameHistory.Snapshot history) {
+        closeChannel();
+
+        try (FileOutputStream fileOut = new FileOutputStream(tempFile)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeInt(start.length);
+            out.writeInt(start[0].length);
+            for (int[] row : start) {
+                for (int tile : row) {
+                    out.writeInt(tile);
+                }
+            }
+            out.writeInt(history.getMoves().length);
+            writeInts(out, history.getParents());
+            writeInts(out, history.getMoves());
+            writeInts(out, history.getRedoChildren());
+            out.writeInt(history.getCursor());
+            out.flush();
+            fileOut.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "could not write journal snapshot", e);
+            return;
+        }
+
+        // renaming is atomic, so a crash leaves either the old or the new journal
+        if (!tempFile.renameTo(file)) {
+            Log.w(TAG, "could not replace journal");
+            return;
+        }
+
+        try {
+            channel = new FileOutputStream(file, true).getChannel();
+        } catch (IOException e) {
+            Log.w(TAG, "could not open journal", e);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.w(TAG, "could not close journal", e);
+        }
+        channel = null;
+    }
+
+    /**
+     * Rebuilds the game saved in the journal in the given directory on the writer
+     * thread, once everything queued so far is written, e.g. by the activity this one
+     * replaces. Returns right away; the listener is called on the given executor,
+     * e.g. the main thread's.
+     */
+    public static void recover(File dir, Executor callbackExecutor, RecoveryListener listener) {
+        writer.execute(() -> {
+            Revolution game;
+            try {
+                game = read(dir);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "could not read journal", e);
+                game = null;
+            }
+
+            Revolution recovered = game;
+            callbackExecutor.execute(() -> listener.onRecovered(recovered));
+        });
+    }
+
+    /**
+     * Reads the journal in the given directory (writer thread)
+     */
+    private static Revolution read(File dir) {
+        File file = new File(dir, FILE_NAME);
+        if (!file.isFile()) return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            // Read the snapshot
+            if (in.readInt() != MAGIC) return null;
+            int rows = in.readInt();
+            int cols = in.readInt();
+            if (rows < 2 || cols < 2 || (long) rows * cols > MAX_CELLS) return null;
+
+            int[][] start = new int[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    start[i][j] = in.readInt();
+                }
+            }
+
+            // Rebuild the history, which checks it fits the grid
+            int positions = in.readInt();
+            if (positions < 1 || positions > MAX_POSITIONS) return null;
+            int[] parents = readInts(in, positions);
+            int[] moves = readInts(in, positions);
+            int[] redoChildren = readInts(in, positions);
+            int cursor = in.readInt();
+            Revolution game;
+            try {
+                game = new Revolution(start,
+                        new GameHistory.Snapshot(parents, moves, redoChildren, cursor));
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "invalid journal snapshot", e);
+                return null;
+            }
+
+            // Replay the entries appended since, stopping at a torn or corrupt tail
+            try {
+                while (replay(game, in.readInt())) {
+                    // keep reading
+                }
+            } catch (EOFException e) {
+                // end of the journal
+            }
+            return game;
+        } catch (IOException e) {
+            Log.w(TAG, "could not read journal", e);
+            return null;
+        }
+    }
+
+    /**
+     * Applies a journal entry to the game
+     *
+     * @return false if the entry isn't valid for the game
+     */
+    private static boolean replay(Revolution game, int entry) {
+        if (entry == UNDO) {
+            game.undo();
+            return true;
+        }
+        if (entry < 0) return false;
+
+        int row = Revolution.moveRow(entry);
+        int col = Revolution.moveCol(entry);
+        if (!game.isValidAnchor(row, col)) return false;
+
+        if (Revolution.isRightMove(entry)) {
+            game.rotateRight(row, col);
+        } else {
+            game.rotateLeft(row, col);
+        }
+        return true;
+    }
+}
@@ -33,16 +33,24 @@ public class MainActivity extends AppCompatActivity {
     private static final int initSolDepth = 3;
     private static final int solDepthMin = 1;
     private static final int solDepthMax = 50;
+    private static final int largeBoardSize = 100;
+    private static final int maxButtonCells = 100; // larger boards are drawn by a BoardView
 
     // Values needed for the game
     private Revolution game = new Revolution(initRowCount, initColCount, initSolDepth);
     private final int[] anchor = {initRowCount, initColCount};
     private int numberPickerValue;
+    private ReplayPlayer replayPlayer; // non-null while a replay is being shown
+    private boolean largeBoard; // new games are largeBoardSize x largeBoardSize
 
     // Layout values
     private TableLayout tableLayout; // contains ImageButtons
-    private Button[] buttons; // displays the number tiles
+    private BoardView boardView; // draws boards too large for buttons
+    private Button[] buttons; // displays the number tiles, null when boardView is used
+    private TileAnimator tileAnimator; // slides the tiles of each rotation
     private SoundManager soundManager;  // for sound effects
+    private GameJournal journal; // autosaves each move to disk
+    private boolean recovering; // the journal is being read, see onRecovered
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -53,11 +61,25 @@ public class MainActivity extends AppCompatActivity {
         setSupportActionBar(toolbar);
 
         tableLayout = findViewById(R.id.mainTableLayout);
+        boardView = findViewById(R.id.mainBoardView);
+        boardView.setOnCellTapListener(this::selectAnchor);
         soundManager = new SoundManager(this);
 
-        if (savedInstanceState != null) {
+        // Restore the game from the saved state, or from the journal after the app
+        // was stopped or crashed. The journal is read off the UI thread, and the board
+        // is hidden until it arrives.
+        journal = new GameJournal(getFilesDir());
+        if (ActivityUtils.hasSavedGame(savedInstanceState)) {
             game = ActivityUtils.getSavedGame(savedInstanceState);
+            journal.start(game);
+        } else {
+            recovering = true;
+            findViewById(R.id.mainBoardFrame).setVisibility(View.INVISIBLE);
+            Revolution placeholder = game;
+            GameJournal.recover(getFilesDir(), ContextCompat.getMainExecutor(this),
+                    recovered -> onRecovered(placeholder, recovered));
         }
+        largeBoard = game.getRows() == largeBoardSize && game.getCols() == largeBoardSize;
 
         // setup grid buttons, numberPicker, and draw the board
         setNumberPicker();
@@ -69,21 +91,84 @@ public class MainActivity extends AppCompatActivity {
         findViewById(R.id.rotateLeftButton).setOnClickListener(move(false));
         findViewById(R.id.rotateRightButton).setOnClickListener(move(true));
         findViewById(R.id.mainUndoButton).setOnClickListener(this::undo);
+        findViewById(R.id.mainRedoButton).setOnClickListener(this::redo);
+        findViewById(R.id.mainRedoButton).setOnLongClickListener(this::redoBranch);
+    }
+
+    /**
+     * Switches to the game read from the journal, unless the player has already
+     * started on the placeholder game, then starts journaling and shows the board
+     */
+    private void onRecovered(Revolution placeholder, Revolution recovered) {
+        if (isDestroyed()) return;
+        recovering = false;
+
+        boolean untouched = game == placeholder && game.moves() == 0 && game.redoBranch() == -1;
+        if (recovered != null && untouched) {
+            game = recovered;
+            largeBoard = game.getRows() == largeBoardSize && game.getCols() == largeBoardSize;
+            invalidateOptionsMenu();
+            setImageButtons();
+            drawBoard();
+        }
+        journal.start(game);
+        findViewById(R.id.mainBoardFrame).setVisibility(View.VISIBLE);
     }
 
     /**
      * Draws the board
      */
-    private void drawBoard() { ActivityUtils.drawBoard(game, buttons);}
+    private void drawBoard() { showBoard(game); }
+
+    /**
+     * Draws the given board, the game or a replay of it, jumping any running
+     * rotations to their end first
+     */
+    private void showBoard(Board board) {
+        if (buttons == null) {
+            boardView.setBoard(board);
+        } else {
+            tileAnimator.finish();
+            ActivityUtils.drawBoard(board, buttons);
+        }
+    }
+
+    /**
+     * Shows a move just made in the game, animated when the board uses buttons
+     */
+    private void showMove(int move) {
+        if (tileAnimator == null) {
+            boardView.invalidate();
+        } else {
+            tileAnimator.animate(move);
+        }
+    }
 
     /**
-     * Sets the image buttons for the Revolution grid and their event handlers
+     * Sets the image buttons for the Revolution grid and their event handlers, or the
+     * BoardView if the grid is too large for buttons
      */
     private void setImageButtons() {
         int r = game.getRows();
         int c = game.getCols();
+        if (tileAnimator != null) {
+            tileAnimator.finish();
+        }
+
+        if (r * c > maxButtonCells) {
+            tableLayout.removeAllViews();
+            tableLayout.setVisibility(View.GONE);
+            boardView.setVisibility(View.VISIBLE);
+            buttons = null;
+            tileAnimator = null;
+            return;
+        }
+        tableLayout.setVisibility(View.VISIBLE);
+        boardView.setVisibility(View.GONE);
+
         buttons = new Button[r * c];
         ActivityUtils.setImageButtons(game, this, tableLayout, buttons);
+        tileAnimator = new TileAnimator(buttons, c);
 
         // set the event handler
         for (Button button : buttons) {
@@ -108,19 +193,34 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Checks the users click, and if a valid anchor highlights the sub grid
-     * saving the anchor value for the players rotation
+     * Event handler for the grid buttons, passes the clicked cell to selectAnchor
      */
     private void setAnchor(View view) {
         int tag = (int) view.getTag();
-        int row = tag / game.getCols();
-        int col = tag % game.getCols();
+        selectAnchor(tag / game.getCols(), tag % game.getCols());
+    }
+
+    /**
+     * Checks the tapped cell, and if a valid anchor highlights the sub grid
+     * saving the anchor value for the players rotation
+     */
+    private void selectAnchor(int row, int col) {
+        // tapping the board pauses a replay
+        if (replayPlayer != null) {
+            replayPlayer.pause();
+            return;
+        }
 
         // If the anchor is valid, save it, and highlight the subgrid
         if (game.isValidAnchor(row, col)) {
             anchor[0] = row;
             anchor[1] = col;
 
+            if (buttons == null) {
+                boardView.setAnchor(row, col);
+                return;
+            }
+
             // reset any highlights
             for (Button button : buttons) {
                 button.setBackgroundColor(ContextCompat.getColor(this, R.color.button_background));
@@ -154,7 +254,13 @@ public class MainActivity extends AppCompatActivity {
      * Restarts the game, using the numberPickers value for the solDepth
      */
     private void restart(View view) {
-        game = new Revolution(initRowCount, initColCount, numberPickerValue);
+        stopReplay();
+        if (largeBoard) {
+            game = new Revolution(largeBoardSize, largeBoardSize, numberPickerValue);
+        } else {
+            game = new Revolution(initRowCount, initColCount, numberPickerValue);
+        }
+        journal.start(game);
         setImageButtons();
         drawBoard();
         soundManager.playStartSound();
@@ -166,6 +272,13 @@ public class MainActivity extends AppCompatActivity {
      */
     private View.OnClickListener move(boolean right) {
         return view -> {
+            // During a replay the rotate buttons play backward/forward instead
+            if (replayPlayer != null) {
+                replayPlayer.play(right);
+                showCustomToast(getString(R.string.replay_speed, replayPlayer.getSpeed()));
+                return;
+            }
+
             // Check that an anchor has been set before the rotate buttons are being used
             if (game.isValidAnchor(anchor[0], anchor[1])) {
                 if (right) {
@@ -173,8 +286,9 @@ public class MainActivity extends AppCompatActivity {
                 } else {
                     game.rotateLeft(anchor[0], anchor[1]);
                 }
+                journal.recordMove(game);
                 soundManager.playMoveSound();
-                drawBoard();
+                showMove(game.lastMove());
 
                 if (game.isOver()) {
                     showCustomToast("You have solved the puzzle!");
@@ -191,8 +305,16 @@ public class MainActivity extends AppCompatActivity {
      * Event handler for undo button
      */
     private void undo(View view) {
+        // During a replay the undo button returns to the game
+        if (replayPlayer != null) {
+            stopReplay();
+            return;
+        }
+
+        int move = game.lastMove();
         if (game.undo()) {
-            drawBoard();
+            journal.recordUndo(game);
+            showMove(Revolution.inverseMove(move));
             soundManager.playUndoSound();
         } else {
             soundManager.playFailSound();
@@ -200,9 +322,145 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Event handler for redo button
+     */
+    private void redo(View view) {
+        // During a replay the redo button returns to the game, like undo
+        if (replayPlayer != null) {
+            stopReplay();
+            return;
+        }
+
+        if (game.redo()) {
+            redone();
+        } else {
+            soundManager.playFailSound();
+            showCustomToast(getString(R.string.redo_fail));
+        }
+    }
+
+    /**
+     * Event handler for long pressing the redo button. Redoes the next branch after
+     * the one redo would follow, so pressing it again after an undo cycles through
+     * every line played from this position.
+     */
+    private boolean redoBranch(View view) {
+        if (replayPlayer != null) {
+            stopReplay();
+            return true;
+        }
+
+        int branches = game.branches();
+        if (branches < 2) {
+            soundManager.playFailSound();
+            showCustomToast(getString(R.string.redo_branch_fail));
+            return true;
+        }
+
+        int branch = (game.redoBranch() + 1) % branches;
+        game.redo(branch);
+        showCustomToast(getString(R.string.redo_branch, branch + 1, branches));
+        redone();
+        return true;
+    }
+
+    /**
+     * Records and shows a move that was just redone
+     */
+    private void redone() {
+        journal.recordMove(game);
+        showMove(game.lastMove());
+        soundManager.playMoveSound();
+
+        if (game.isOver()) {
+            showCustomToast(getString(R.string.success));
+            soundManager.playWinSound();
+        }
+    }
+
+    /**
+     * Replays the moves made so far from the starting grid
+     */
+    private void startReplay() {
+        Replay replay = Replay.fromGame(game);
+        if (replay.length() == 0) {
+            soundManager.playFailSound();
+            showCustomToast(getString(R.string.replay_fail));
+            return;
+        }
+
+        stopReplay();
+        replayPlayer = new ReplayPlayer(replay, new ReplayPlayer.Listener() {
+            @Override
+            public void onStep(Replay replay) {
+                showBoard(replay);
+                soundManager.playMoveSound();
+            }
+
+            @Override
+            public void onStopped(Replay replay) {
+                showCustomToast(getString(R.string.replay_paused,
+                        replay.position(), replay.length()));
+            }
+        });
+        showBoard(replay);
+        replayPlayer.play(true);
+        showCustomToast(getString(R.string.replay_start));
+    }
+
+    /**
+     * Stops the replay, asks for a move number and jumps the replay to it, starting
+     * a replay if none is being shown
+     */
+    private void showSeekDialog() {
+        if (replayPlayer == null) {
+            startReplay();
+            if (replayPlayer == null) return;
+        }
+        replayPlayer.stop();
+        Replay replay = replayPlayer.getReplay();
+
+        NumberPicker picker = new NumberPicker(this);
+        picker.setMinValue(0);
+        picker.setMaxValue(replay.length());
+        picker.setValue(replay.position());
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(R.string.replay_seek_title)
+                .setView(picker)
+                .setNegativeButton(android.R.string.cancel, null)
+                .setPositiveButton(android.R.string.ok, (v, n) -> {
+                    // the replay may have been closed while the dialog was open
+                    if (replayPlayer != null && replayPlayer.getReplay() == replay) {
+                        replayPlayer.seek(picker.getValue());
+                    }
+                });
+        AlertDialog dialog = builder.create();
+        dialog.show();
+
+        Window window = dialog.getWindow();
+        if (window != null) {
+            window.setBackgroundDrawableResource(R.color.dialog_background);
+        }
+    }
+
+    /**
+     * Stops any replay being shown and draws the game again
+     */
+    private void stopReplay() {
+        if (replayPlayer == null) return;
+
+        ReplayPlayer player = replayPlayer;
+        replayPlayer = null;
+        player.stop();
+        drawBoard();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_main, menu);
+        menu.findItem(R.id.menu_large_board).setChecked(largeBoard);
         return true;
     }
 
@@ -217,6 +475,20 @@ public class MainActivity extends AppCompatActivity {
             ActivityUtils.showCustomDialog(this, R.layout.dialog_about);
         }
 
+        if (id == R.id.menu_replay) {
+            startReplay();
+        }
+
+        if (id == R.id.menu_replay_seek) {
+            showSeekDialog();
+        }
+
+        if (id == R.id.menu_large_board) {
+            largeBoard = !largeBoard;
+            item.setChecked(largeBoard);
+            restart(null);
+        }
+
         if (id == R.id.menu_exit) {
             showExitDialog();
         }
@@ -252,11 +524,27 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Releases memory and other resources used by the sound manager.
+     * Makes sure the journal is on disk before the app goes to the background.
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        journal.flush();
+    }
+
+    /**
+     * Releases memory and other resources used by the sound manager and journal.
      */
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        journal.close();
+        if (replayPlayer != null) {
+            replayPlayer.stop();
+        }
+        if (tileAnimator != null) {
+            tileAnimator.finish();
+        }
         soundManager.release();
     }
 
@@ -267,6 +555,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        ActivityUtils.saveGame(game, outState);
+        // Until the journal is read, the next activity reads it instead
+        if (!recovering) {
+            ActivityUtils.saveGame(game, outState);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.example.revolution;
+
+/**
+ * Replay of a game of Revolution
+ *
+ * Stores the starting grid, the moves made, and a keyframe copy of the grid every
+ * keyframeInterval moves, so any move index can be reached from the nearest keyframe
+ * with at most keyframeInterval - 1 moves, regardless of the length of the game.
+ *
+ * @author Sam Kapp
+ */
+public class Replay implements Board {
+    private static final int DEFAULT_KEYFRAME_INTERVAL = 16;
+
+    private final int rows;
+    private final int cols;
+    private final int keyframeInterval;
+
+    private final int[] moves;        // packed moves, see Revolution.encodeMove
+    private final int[][][] keyframes; // keyframes[k] is the grid after k * keyframeInterval moves
+
+    private final int[][] grid;       // grid currently being shown
+    private int position;             // number of moves applied to grid
+
+    /**
+     * Constructor with the default keyframe interval
+     */
+    public Replay(int[][] start, int[] moves) {
+        this(start, moves, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Explicit Constructor
+     *
+     * @param start the grid before any moves are made
+     * @param moves the packed moves to play from start, e.g. a solver's solution
+     * @throws IllegalArgumentException if a move isn't a valid rotation of the grid
+     */
+    public Replay(int[][] start, int[] moves, int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("keyframeInterval must be positive");
+        }
+        this.rows = start.length;
+        this.cols = start[0].length;
+        this.keyframeInterval = keyframeInterval;
+        this.moves = moves.clone();
+
+        for (int i = 0; i < moves.length; i++) {
+            int move = moves[i];
+            if (move < 0 || Revolution.moveRow(move) >= rows - 1
+                    || Revolution.moveCol(move) >= cols - 1) {
+                throw new IllegalArgumentException("invalid move " + move + " at index " + i);
+            }
+        }
+
+        // Play through the moves once, keeping a copy of the grid at each keyframe
+        grid = copyGrid(start);
+        keyframes = new int[moves.length / keyframeInterval + 1][][];
+        keyframes[0] = copyGrid(grid);
+        for (int i = 0; i < moves.length; i++) {
+            Revolution.applyMove(grid, moves[i]);
+            if ((i + 1) % keyframeInterval == 0) {
+                keyframes[(i + 1) / keyframeInterval] = copyGrid(grid);
+            }
+        }
+
+        // Start the playback at the beginning of the game
+        loadKeyframe(0);
+    }
+
+    /**
+     * Builds a replay of the moves made so far in the given game
+     */
+    public static Replay fromGame(Revolution game) {
+        return new Replay(game.getStartGrid(), game.getMoveList());
+    }
+
+    /**
+     * Moves the playback one move forward
+     *
+     * @return true if a move was played, false if already at the end
+     */
+    public boolean stepForward() {
+        if (position >= moves.length) return false;
+
+        Revolution.applyMove(grid, moves[position++]);
+        return true;
+    }
+
+    /**
+     * Moves the playback one move backward
+     *
+     * @return true if a move was taken back, false if already at the start
+     */
+    public boolean stepBackward() {
+        if (position <= 0) return false;
+
+        Revolution.applyMove(grid, Revolution.inverseMove(moves[--position]));
+        return true;
+    }
+
+    /**
+     * Moves the playback to the grid after the given number of moves, stepping from
+     * the current position or the nearest keyframe, whichever is closer
+     */
+    public void seek(int index) {
+        if (index < 0 || index > moves.length) {
+            throw new IndexOutOfBoundsException("index " + index + " of " + moves.length);
+        }
+
+        int keyframe = index / keyframeInterval;
+        int fromKeyframe = index - keyframe * keyframeInterval;
+        if (Math.abs(index - position) > fromKeyframe) {
+            loadKeyframe(keyframe);
+        }
+
+        while (position < index) stepForward();
+        while (position > index) stepBackward();
+    }
+
+    /**
+     * Sets the grid to the given keyframe
+     */
+    private void loadKeyframe(int keyframe) {
+        int[][] state = keyframes[keyframe];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(state[i], 0, grid[i], 0, cols);
+        }
+        position = keyframe * keyframeInterval;
+    }
+
+    /**
+     * @return the number of moves applied to the grid being shown
+     */
+    public int position() { return position; }
+
+    /**
+     * @return the number of moves in the replay
+     */
+    public int length() { return moves.length; }
+
+    public boolean atStart() { return position == 0; }
+    public boolean atEnd() { return position == moves.length; }
+
+    /* Row and Col getters */
+    @Override
+    public int getRows() { return rows; }
+    @Override
+    public int getCols() { return cols; }
+
+    /**
+     * @return the value at the given index of the grid being shown
+     */
+    @Override
+    public int get(int row, int col) {
+        return grid[row][col];
+    }
+
+    /**
+     * Returns a copy of a grid state
+     */
+    private static int[][] copyGrid(int[][] grid) {
+        int[][] copy = new int[grid.length][];
+
+        for (int i = 0; i < grid.length; i++) {
+            copy[i] = grid[i].clone();
+        }
+        return copy;
+    }
+}
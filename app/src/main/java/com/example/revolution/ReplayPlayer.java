@@ -0,0 +1,102 @@
+package com.example.revolution;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Plays a Replay forward or backward on the UI thread at an adjustable speed
+ *
+ * @author Sam Kapp
+ */
+public class ReplayPlayer {
+    private static final long BASE_STEP_DELAY_MS = 600;
+    private static final int MAX_SPEED = 8;
+
+    /**
+     * Called after every step of the playback, and when the playback stops
+     */
+    public interface Listener {
+        void onStep(Replay replay);
+        void onStopped(Replay replay);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable stepRunnable = this::step;
+    private final Replay replay;
+    private final Listener listener;
+
+    private boolean playing;
+    private boolean forward = true;
+    private int speed = 1; // multiplier of the base playback rate
+
+    public ReplayPlayer(Replay replay, Listener listener) {
+        this.replay = replay;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts playing in the given direction, or doubles the speed (up to MAX_SPEED,
+     * then back to normal) if already playing in that direction
+     */
+    public void play(boolean forward) {
+        if (playing && this.forward == forward) {
+            speed = speed >= MAX_SPEED ? 1 : speed * 2;
+        } else {
+            this.forward = forward;
+            speed = 1;
+        }
+        playing = true;
+        handler.removeCallbacks(stepRunnable);
+        handler.postDelayed(stepRunnable, delay());
+    }
+
+    /**
+     * Stops the playback where it is, telling the listener
+     */
+    public void pause() {
+        if (!playing) return;
+
+        stop();
+        listener.onStopped(replay);
+    }
+
+    /**
+     * Stops the playback without telling the listener, e.g. when the replay is closed
+     */
+    public void stop() {
+        playing = false;
+        handler.removeCallbacks(stepRunnable);
+    }
+
+    /**
+     * Jumps to the grid after the given number of moves, stopping the playback there
+     */
+    public void seek(int index) {
+        stop();
+        replay.seek(index);
+        listener.onStep(replay);
+        listener.onStopped(replay);
+    }
+
+    /**
+     * Plays one move in the current direction, and schedules the next if there is one
+     */
+    private void step() {
+        boolean moved = forward ? replay.stepForward() : replay.stepBackward();
+        if (moved) {
+            listener.onStep(replay);
+        }
+
+        if (moved && !(forward ? replay.atEnd() : replay.atStart())) {
+            handler.postDelayed(stepRunnable, delay());
+        } else {
+            pause();
+        }
+    }
+
+    private long delay() { return BASE_STEP_DELAY_MS / speed; }
+
+    public boolean isPlaying() { return playing; }
+    public int getSpeed() { return speed; }
+    public Replay getReplay() { return replay; }
+}
@@ -1,6 +1,5 @@
 package com.example.revolution;
 
-import java.util.Stack;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -9,9 +8,10 @@ import java.util.concurrent.ThreadLocalRandom;
  * @author Sam Kapp
  */
 
-public class Revolution {
+public class Revolution implements Board {
     private int[][] grid;
-    private Stack<int[][]> gridStates;
+    private final int[][] start; // grid before any moves were made
+    private final GameHistory history;
 
     private final int rows;
     private final int cols;
@@ -36,14 +36,52 @@ public class Revolution {
     public Revolution(int rows, int cols, int solDepth) {
         this.rows = rows;
         this.cols = cols;
+        this.history = new GameHistory();
 
-        gridStates = new Stack<>();
         gridInit(rows, cols, solDepth);
+        start = copyGrid(grid);
+    }
+
+    /**
+     * Constructor for restoring a saved game from its starting grid and the moves
+     * made since
+     */
+    public Revolution(int[][] start, int[] moves) {
+        this.rows = start.length;
+        this.cols = start[0].length;
+        this.history = new GameHistory();
+
+        this.start = copyGrid(start);
+        grid = copyGrid(start);
+        for (int move : moves) {
+            applyMove(grid, move);
+            history.push(move);
+        }
+    }
+
+    /**
+     * Constructor for restoring a saved game from its starting grid and its whole
+     * history, see getHistory()
+     *
+     * @throws IllegalArgumentException if a move in the history isn't valid for the grid
+     */
+    public Revolution(int[][] start, GameHistory.Snapshot history) {
+        this.rows = start.length;
+        this.cols = start[0].length;
+
+        int[] moves = history.getMoves();
+        for (int i = 1; i < moves.length; i++) {
+            if (!isValidAnchor(moveRow(moves[i]), moveCol(moves[i]))) {
+                throw new IllegalArgumentException("invalid move " + moves[i]);
+            }
+        }
+        this.history = new GameHistory(history);
 
-        // Reset gridStates and add the current grid to it, so that the gridStates from
-        // random rotations aren't added
-        this.resetGridStates();
-        addMove((this.grid));
+        this.start = copyGrid(start);
+        grid = copyGrid(start);
+        for (int move : this.history.line()) {
+            applyMove(grid, move);
+        }
     }
 
     /**
@@ -52,6 +90,16 @@ public class Revolution {
      */
     private void gridInit(int rows, int cols, int solDepth) {
         grid = new int[rows][cols];
+        scramble(grid, solDepth);
+    }
+
+    /**
+     * Fills the grid in winning position, then randomly rotates it solDepth times.
+     * The rotations are made directly on the grid, so they aren't recorded in a history.
+     */
+    static void scramble(int[][] grid, int solDepth) {
+        int rows = grid.length;
+        int cols = grid[0].length;
 
         // Fill the grid in winning position
         for (int i = 0; i < rows; i++) {
@@ -62,7 +110,7 @@ public class Revolution {
 
         // Randomly rotate the grid solDepth times
         for (int i = 0; i < solDepth; i++) {
-            randomRotation();
+            randomRotation(grid);
         }
     }
 
@@ -72,19 +120,15 @@ public class Revolution {
      *
      * Anchor positions are all tiles except tiles on the last row and col
      */
-    private void randomRotation() {
+    private static void randomRotation(int[][] grid) {
         // get random valid anchor point
-        int row = ThreadLocalRandom.current().nextInt(rows - 1);
-        int col = ThreadLocalRandom.current().nextInt(cols - 1);
+        int row = ThreadLocalRandom.current().nextInt(grid.length - 1);
+        int col = ThreadLocalRandom.current().nextInt(grid[0].length - 1);
 
         // get right or left movement (right = true, left = false)
         boolean right = ThreadLocalRandom.current().nextInt(2) == 0;
 
-        if (right) {
-            rotateRight(row, col);
-        } else {
-            rotateLeft(row, col);
-        }
+        rotate(grid, row, col, right);
     }
 
     /**
@@ -93,15 +137,8 @@ public class Revolution {
     public void rotateRight(int row, int col) {
         if (!isValidAnchor(row, col)) return;
 
-        int temp = grid[row][col];
-
-        grid[row][col] = grid[row+1][col];
-        grid[row+1][col] = grid[row+1][col+1];
-        grid[row+1][col+1] = grid[row][col+1];
-        grid[row][col+1] = temp;
-
-        gridStates.push(copyGrid(grid));
-
+        rotate(grid, row, col, true);
+        history.push(encodeMove(row, col, true));
     }
 
     /**
@@ -110,16 +147,55 @@ public class Revolution {
     public void rotateLeft(int row, int col) {
         if (!isValidAnchor(row, col)) return;
 
-        // Use one temporary variable
+        rotate(grid, row, col, false);
+        history.push(encodeMove(row, col, false));
+    }
+
+    /**
+     * Rotates the 2x2 subgrid anchored at (row, col) of the given grid in place.
+     * Does not check the anchor, or record anything in the history.
+     */
+    static void rotate(int[][] grid, int row, int col, boolean right) {
         int temp = grid[row][col];
 
-        grid[row][col] = grid[row][col + 1]; // topLeft <- topRight
-        grid[row][col + 1] = grid[row + 1][col + 1]; // topRight <- bottomRight
-        grid[row + 1][col + 1] = grid[row + 1][col]; // bottomRight <- bottomLeft
-        grid[row + 1][col] = temp; // bottomLeft <- temp (original topLeft)
+        if (right) {
+            grid[row][col] = grid[row + 1][col]; // topLeft <- bottomLeft
+            grid[row + 1][col] = grid[row + 1][col + 1]; // bottomLeft <- bottomRight
+            grid[row + 1][col + 1] = grid[row][col + 1]; // bottomRight <- topRight
+            grid[row][col + 1] = temp; // topRight <- temp (original topLeft)
+        } else {
+            grid[row][col] = grid[row][col + 1]; // topLeft <- topRight
+            grid[row][col + 1] = grid[row + 1][col + 1]; // topRight <- bottomRight
+            grid[row + 1][col + 1] = grid[row + 1][col]; // bottomRight <- bottomLeft
+            grid[row + 1][col] = temp; // bottomLeft <- temp (original topLeft)
+        }
+    }
+
+    /* Moves are packed into a single int as (row << 16) | (col << 1) | (right ? 1 : 0) */
 
-        gridStates.push(copyGrid(grid));
+    /**
+     * @return the packed form of a rotation about the given anchor
+     */
+    public static int encodeMove(int row, int col, boolean right) {
+        return (row << 16) | (col << 1) | (right ? 1 : 0);
+    }
 
+    public static int moveRow(int move) { return move >>> 16; }
+    public static int moveCol(int move) { return (move & 0xFFFF) >>> 1; }
+    public static boolean isRightMove(int move) { return (move & 1) != 0; }
+
+    /**
+     * @return the move that takes back the given move (same anchor, other direction)
+     */
+    public static int inverseMove(int move) {
+        return move ^ 1;
+    }
+
+    /**
+     * Applies a packed move to the given grid in place
+     */
+    static void applyMove(int[][] grid, int move) {
+        rotate(grid, moveRow(move), moveCol(move), isRightMove(move));
     }
 
     /**
@@ -146,63 +222,121 @@ public class Revolution {
     }
 
     /**
-     * Undoes the last move made, if there is a move to undo
+     * Undoes the last move made, if there is a move to undo.
+     * The move is kept in the history, so it can be redone.
      *
      * @return true if a move was undone, and false otherwise
      */
     public boolean undo() {
-        if (!gridStates.empty()) {
-            this.grid = gridStates.pop();
-            return true;
-        }
-        return false;
+        int move = history.undo();
+        if (move == GameHistory.NO_MOVE) return false;
+
+        applyMove(grid, inverseMove(move));
+        return true;
+    }
+
+    /**
+     * Redoes the most recently undone move, if there is one
+     *
+     * @return true if a move was redone, and false otherwise
+     */
+    public boolean redo() {
+        int move = history.redo();
+        if (move == GameHistory.NO_MOVE) return false;
+
+        applyMove(grid, move);
+        return true;
+    }
+
+    /**
+     * Redoes the move along the given branch, see branches()
+     *
+     * @return true if a move was redone, and false otherwise
+     */
+    public boolean redo(int branch) {
+        int move = history.redo(branch);
+        if (move == GameHistory.NO_MOVE) return false;
+
+        applyMove(grid, move);
+        return true;
     }
 
     /**
-     * adds a move to the grid state
-     * for use only in saving/restoring the game state
+     * @return the number of different moves that can be redone from here
      */
-    public void addMove(int[][] move) {
-        gridStates.push(move);
+    public int branches() {
+        return history.branches();
     }
 
     /**
-     * returns the grid state from a given index
+     * @return the branch redo() follows from here, or -1 if there is nothing to redo
      */
-    public int[][] moveAt(int index) {
-        return gridStates.get(index);
+    public int redoBranch() {
+        return history.redoBranch();
+    }
+
+    /**
+     * Sets how many positions the history keeps before pruning cold branches
+     */
+    public void setHistoryLimit(int maxPositions) {
+        history.setMaxNodes(maxPositions);
+    }
+
+    /**
+     * @return the packed move that led to the current grid, or GameHistory.NO_MOVE
+     */
+    public int lastMove() {
+        return history.lastMove();
+    }
+
+    /**
+     * @return the packed moves made from the starting grid to the current grid
+     */
+    public int[] getMoveList() {
+        return history.line();
+    }
+
+    /**
+     * @return every line played in this game, to restore it with later
+     */
+    public GameHistory.Snapshot getHistory() {
+        return history.snapshot();
+    }
+
+    /**
+     * @return a copy of the grid before any moves were made
+     */
+    public int[][] getStartGrid() {
+        return copyGrid(start);
     }
 
     /**
      * @return the number of moves made
      */
     public int moves() {
-        return gridStates.size();
+        return history.depth();
     }
 
 
     /* Row and Col getters */
+    @Override
     public int getRows() { return rows; }
+    @Override
     public int getCols() { return cols; }
 
     /**
      * @return the value at the given index
      */
+    @Override
     public int get(int row, int col) {
         return grid[row][col];
     }
 
     /**
-     * sets the grid to the given 2d-array state
+     * @return the key of the current grid's symmetry class, see BoardSymmetry
      */
-    public void setGrid(int[][] state) {
-        // Create a new grid with the same dimensions
-        this.grid = new int[rows][cols];
-
-        // Perform a deep copy of the state
-        for (int i = 0; i < rows; i++) {
-            System.arraycopy(state[i], 0, this.grid[i], 0, cols);
-        }
+    public long canonicalKey(BoardSymmetry symmetry) {
+        return symmetry.canonicalKey(grid);
     }
 
     /**
@@ -217,12 +351,5 @@ public class Revolution {
         return copy;
     }
 
-    /**
-     * Clears the gridStates history
-     */
-    public void resetGridStates() {
-        this.gridStates = new Stack<>();
-    }
-
 }
 
@@ -0,0 +1,182 @@
+package com.example.revolution;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.TimeInterpolator;
+import android.animation.ValueAnimator;
+import android.view.View;
+import android.view.animation.DecelerateInterpolator;
+import android.widget.Button;
+
+/**
+ * Animates rotations by sliding the four tiles of a subgrid around the anchor
+ *
+ * A single ValueAnimator drives the translations of the four buttons, which are
+ * drawn from hardware layers while they move. When a rotation finishes the labels
+ * are swapped between the buttons and the translations reset.
+ * Moves made while a rotation is still running are queued and played faster; if the
+ * queue fills up, everything queued is jumped to instantly. All state is allocated
+ * up front, so animating a move creates no garbage.
+ *
+ * @author Sam Kapp
+ */
+public class TileAnimator {
+    private static final long DURATION_MS = 160;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final TimeInterpolator INTERPOLATOR = new DecelerateInterpolator();
+
+    // Subgrid positions in clockwise order: topLeft, topRight, bottomRight, bottomLeft
+    private static final int[] ROW_OFFSETS = {0, 0, 1, 1};
+    private static final int[] COL_OFFSETS = {0, 1, 1, 0};
+
+    private final Button[] buttons;
+    private final int cols;
+
+    private final int[] queue = new int[QUEUE_CAPACITY]; // packed moves waiting to animate
+    private int head;
+    private int count;
+
+    private boolean running;
+    private int current; // packed move being animated
+    private final Button[] tiles = new Button[4];
+    private final float[] dx = new float[4]; // distance each tile travels
+    private final float[] dy = new float[4];
+    private final CharSequence[] labels = new CharSequence[4];
+    private final ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+
+    public TileAnimator(Button[] buttons, int cols) {
+        this.buttons = buttons;
+        this.cols = cols;
+
+        animator.setInterpolator(INTERPOLATOR);
+        animator.addUpdateListener(this::onUpdate);
+        animator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                onRotationEnd();
+            }
+        });
+    }
+
+    /**
+     * Animates the given packed move, after any rotations already running or queued
+     */
+    public void animate(int move) {
+        if (count == QUEUE_CAPACITY) {
+            finish();
+        }
+
+        queue[(head + count) % QUEUE_CAPACITY] = move;
+        count++;
+
+        if (!running) {
+            startNext();
+        }
+    }
+
+    /**
+     * Jumps the running and queued rotations to their end, leaving the buttons at rest
+     */
+    public void finish() {
+        if (running) {
+            running = false;
+            animator.cancel();
+            settle(current);
+        }
+
+        while (count > 0) {
+            int move = dequeue();
+            collectTiles(move);
+            settle(move);
+        }
+    }
+
+    /**
+     * Starts animating the next queued move, sped up by the number still waiting
+     */
+    private void startNext() {
+        current = dequeue();
+        running = true;
+        collectTiles(current);
+
+        // Distance between neighbouring buttons, including their margins
+        float pitchX = buttons[1].getLeft() - buttons[0].getLeft();
+        float pitchY = ((View) buttons[cols].getParent()).getTop()
+                - ((View) buttons[0].getParent()).getTop();
+        long duration = DURATION_MS / (1 + count);
+        int step = Revolution.isRightMove(current) ? 1 : 3; // clockwise or counterclockwise
+
+        for (int i = 0; i < 4; i++) {
+            int to = (i + step) % 4;
+            dx[i] = (COL_OFFSETS[to] - COL_OFFSETS[i]) * pitchX;
+            dy[i] = (ROW_OFFSETS[to] - ROW_OFFSETS[i]) * pitchY;
+            tiles[i].setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
+
+        animator.setDuration(duration);
+        animator.start();
+    }
+
+    /**
+     * Moves the tiles along for the current frame
+     */
+    private void onUpdate(ValueAnimator animation) {
+        float fraction = animation.getAnimatedFraction();
+
+        for (int i = 0; i < 4; i++) {
+            tiles[i].setTranslationX(dx[i] * fraction);
+            tiles[i].setTranslationY(dy[i] * fraction);
+        }
+    }
+
+    /**
+     * Called when the running rotation ends, or is canceled by finish()
+     */
+    private void onRotationEnd() {
+        if (!running) return;
+
+        running = false;
+        settle(current);
+        if (count > 0) {
+            startNext();
+        }
+    }
+
+    /**
+     * Moves the labels of the tiles to where the given move sends them, and puts
+     * the buttons back in place
+     */
+    private void settle(int move) {
+        int step = Revolution.isRightMove(move) ? 1 : 3;
+
+        for (int i = 0; i < 4; i++) {
+            labels[(i + step) % 4] = tiles[i].getText();
+        }
+        for (int i = 0; i < 4; i++) {
+            tiles[i].setText(labels[i]);
+            tiles[i].setTranslationX(0);
+            tiles[i].setTranslationY(0);
+            tiles[i].setLayerType(View.LAYER_TYPE_NONE, null);
+            labels[i] = null;
+        }
+    }
+
+    /**
+     * Fills tiles with the buttons of the subgrid the given move rotates
+     */
+    private void collectTiles(int move) {
+        int row = Revolution.moveRow(move);
+        int col = Revolution.moveCol(move);
+
+        for (int i = 0; i < 4; i++) {
+            tiles[i] = buttons[(row + ROW_OFFSETS[i]) * cols + col + COL_OFFSETS[i]];
+        }
+    }
+
+    private int dequeue() {
+        int move = queue[head];
+        head = (head + 1) % QUEUE_CAPACITY;
+        count--;
+        return move;
+    }
+}
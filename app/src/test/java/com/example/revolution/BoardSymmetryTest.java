@@ -0,0 +1,239 @@
+package com.example.revolution;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for BoardSymmetry, checked against symmetric images built
+ * independently by mirroring and transposing grids
+ */
+public class BoardSymmetryTest {
+    @Test
+    public void canonicalForm_isSameForEveryImage_4x4() {
+        checkImagesShareCanonicalForm(4, 4, 8);
+    }
+
+    @Test
+    public void canonicalForm_isSameForEveryImage_3x4() {
+        checkImagesShareCanonicalForm(3, 4, 4);
+    }
+
+    @Test
+    public void canonicalForm_isSameForEveryImage_6x6() {
+        checkImagesShareCanonicalForm(6, 6, 8);
+    }
+
+    @Test
+    public void canonicalForm_agreesWithCanonicalKey_4x4() {
+        checkFormMatchesKey(4, 4);
+    }
+
+    @Test
+    public void canonicalForm_agreesWithCanonicalKey_3x4() {
+        checkFormMatchesKey(3, 4);
+    }
+
+    @Test
+    public void canonicalKey_withSignBitSet_isStillTheSmallestImage() {
+        // Starting with tile 16 sets the sign bit of the grid's own key
+        BoardSymmetry symmetry = new BoardSymmetry(4, 4);
+        int[][] grid = solvedGrid(4, 4);
+        grid[0][0] = 16;
+        grid[3][3] = 1;
+
+        int[][] decoded = new int[4][4];
+        symmetry.decodeKey(symmetry.canonicalKey(grid), decoded);
+        assertNotEquals(16, decoded[0][0]);
+        assertArrayEquals(symmetry.canonicalForm(grid), flatten(decoded));
+    }
+
+    @Test
+    public void mirroredGames_shareCanonicalKey() {
+        int rows = 3;
+        int cols = 4;
+        BoardSymmetry symmetry = new BoardSymmetry(rows, cols);
+        Random random = new Random(1);
+        int[][] start = new Revolution(rows, cols, 20).getStartGrid();
+
+        // Every rotateRight of a game is a rotateLeft of its mirror image
+        int[] moves = new int[30];
+        int[] mirroredMoves = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            int row = random.nextInt(rows - 1);
+            int col = random.nextInt(cols - 1);
+            boolean right = random.nextBoolean();
+            moves[i] = Revolution.encodeMove(row, col, right);
+            mirroredMoves[i] = Revolution.encodeMove(row, cols - 2 - col, !right);
+        }
+        Revolution game = new Revolution(start, moves);
+        Revolution mirrored = new Revolution(mirrorLeftRight(start), mirroredMoves);
+
+        assertEquals(game.canonicalKey(symmetry), mirrored.canonicalKey(symmetry));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void canonicalKey_rejectsLargeBoards() {
+        new BoardSymmetry(4, 5).canonicalKey(solvedGrid(4, 5));
+    }
+
+    private static void checkImagesShareCanonicalForm(int rows, int cols, int symmetries) {
+        BoardSymmetry symmetry = new BoardSymmetry(rows, cols);
+        assertEquals(symmetries, symmetry.size());
+
+        Random random = new Random(rows * 31 + cols);
+        for (int n = 0; n < 50; n++) {
+            int[][] grid = randomGrid(rows, cols, random);
+            List<int[][]> images = images(grid);
+            assertEquals(symmetries, images.size());
+
+            int[] form = symmetry.canonicalForm(grid);
+            for (int[][] image : images) {
+                assertArrayEquals(form, symmetry.canonicalForm(image));
+            }
+
+            // The canonical form is one of the images, the smallest
+            for (int[][] image : images) {
+                assertTrue(compare(form, flatten(image)) <= 0);
+            }
+        }
+    }
+
+    private static void checkFormMatchesKey(int rows, int cols) {
+        BoardSymmetry symmetry = new BoardSymmetry(rows, cols);
+        Random random = new Random(rows * 17 + cols);
+        int[][] decoded = new int[rows][cols];
+
+        for (int n = 0; n < 2000; n++) {
+            int[][] grid = randomGrid(rows, cols, random);
+            long key = symmetry.canonicalKey(grid);
+            symmetry.decodeKey(key, decoded);
+            assertArrayEquals(symmetry.canonicalForm(grid), flatten(decoded));
+
+            // Grids share a key exactly when they share a form
+            int[][] other = random.nextBoolean() ? images(grid).get(random.nextInt(symmetry.size()))
+                    : randomGrid(rows, cols, random);
+            boolean sameForm = Arrays.equals(symmetry.canonicalForm(grid), symmetry.canonicalForm(other));
+            assertEquals(sameForm, key == symmetry.canonicalKey(other));
+        }
+    }
+
+    /**
+     * @return every distinct image of the grid under mirroring both ways and, on
+     * square boards, transposing
+     */
+    private static List<int[][]> images(int[][] grid) {
+        List<int[][]> images = new ArrayList<>();
+        ArrayDeque<int[][]> queue = new ArrayDeque<>();
+        images.add(grid);
+        queue.add(grid);
+        while (!queue.isEmpty()) {
+            int[][] image = queue.poll();
+            List<int[][]> next = new ArrayList<>();
+            next.add(mirrorLeftRight(image));
+            next.add(mirrorTopBottom(image));
+            if (grid.length == grid[0].length) next.add(transpose(image));
+
+            for (int[][] candidate : next) {
+                boolean seen = false;
+                for (int[][] known : images) seen |= Arrays.deepEquals(known, candidate);
+                if (!seen) {
+                    images.add(candidate);
+                    queue.add(candidate);
+                }
+            }
+        }
+        return images;
+    }
+
+    /* Each image moves a tile to a new cell and relabels it with the value of its new home */
+
+    private static int[][] mirrorLeftRight(int[][] grid) {
+        int rows = grid.length;
+        int cols = grid[0].length;
+        int[][] image = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int home = grid[i][j] - 1;
+                image[i][cols - 1 - j] = (home / cols) * cols + (cols - 1 - home % cols) + 1;
+            }
+        }
+        return image;
+    }
+
+    private static int[][] mirrorTopBottom(int[][] grid) {
+        int rows = grid.length;
+        int cols = grid[0].length;
+        int[][] image = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int home = grid[i][j] - 1;
+                image[rows - 1 - i][j] = (rows - 1 - home / cols) * cols + home % cols + 1;
+            }
+        }
+        return image;
+    }
+
+    private static int[][] transpose(int[][] grid) {
+        int size = grid.length;
+        int[][] image = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int home = grid[i][j] - 1;
+                image[j][i] = (home % size) * size + home / size + 1;
+            }
+        }
+        return image;
+    }
+
+    private static int[][] solvedGrid(int rows, int cols) {
+        int[][] grid = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                grid[i][j] = i * cols + j + 1;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * @return a uniformly shuffled grid, not necessarily reachable by rotations
+     */
+    private static int[][] randomGrid(int rows, int cols, Random random) {
+        int cells = rows * cols;
+        int[] tiles = new int[cells];
+        for (int i = 0; i < cells; i++) tiles[i] = i + 1;
+        for (int i = cells - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int tile = tiles[i];
+            tiles[i] = tiles[k];
+            tiles[k] = tile;
+        }
+
+        int[][] grid = new int[rows][cols];
+        for (int i = 0; i < cells; i++) grid[i / cols][i % cols] = tiles[i];
+        return grid;
+    }
+
+    private static int[] flatten(int[][] grid) {
+        int cols = grid[0].length;
+        int[] tiles = new int[grid.length * cols];
+        for (int i = 0; i < grid.length; i++) {
+            System.arraycopy(grid[i], 0, tiles, i * cols, cols);
+        }
+        return tiles;
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) return Integer.compare(a[i], b[i]);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.revolution;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for DistanceTable, checked against a plain breadth-first search
+ * over whole grids
+ */
+public class DistanceTableTest {
+    @Test
+    public void matchesBruteForce_2x2() {
+        checkAgainstBruteForce(2, 2);
+    }
+
+    @Test
+    public void matchesBruteForce_2x3() {
+        checkAgainstBruteForce(2, 3);
+    }
+
+    @Test
+    public void matchesBruteForce_3x2() {
+        checkAgainstBruteForce(3, 2);
+    }
+
+    @Test
+    public void matchesBruteForce_2x4() {
+        checkAgainstBruteForce(2, 4);
+    }
+
+    @Test
+    public void matchesBruteForce_3x3() {
+        checkAgainstBruteForce(3, 3);
+    }
+
+    @Test
+    public void unreachableGrid_hasUnknownDistance() {
+        DistanceTable table = new DistanceTable(2, 2);
+        assertEquals(-1, table.distance(new int[][] {{2, 1}, {3, 4}}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void largeBoard_isRejected() {
+        new DistanceTable(3, 4);
+    }
+
+    private static void checkAgainstBruteForce(int rows, int cols) {
+        DistanceTable table = new DistanceTable(rows, cols);
+        Map<Long, Integer> expected = bruteForce(rows, cols);
+
+        int maxDistance = 0;
+        Set<Long> canonicalKeys = new HashSet<>();
+        int[][] grid = new int[rows][cols];
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            decode(entry.getKey(), grid);
+            assertEquals(entry.getValue().intValue(), table.distance(grid));
+            maxDistance = Math.max(maxDistance, entry.getValue());
+            canonicalKeys.add(table.getSymmetry().canonicalKey(grid));
+        }
+        assertEquals(maxDistance, table.maxDistance());
+        assertEquals(canonicalKeys.size(), table.size());
+
+        int classes = 0;
+        for (int d = 0; d <= maxDistance; d++) classes += table.classesAt(d);
+        assertEquals(table.size(), classes);
+    }
+
+    /**
+     * Breadth-first search over every reachable grid, without symmetry
+     *
+     * @return the distance of every reachable grid, keyed by its tiles 4 bits each
+     */
+    private static Map<Long, Integer> bruteForce(int rows, int cols) {
+        int[][] grid = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                grid[i][j] = i * cols + j + 1;
+            }
+        }
+
+        Map<Long, Integer> distances = new HashMap<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        long solved = encode(grid);
+        distances.put(solved, 0);
+        queue.add(solved);
+        while (!queue.isEmpty()) {
+            long key = queue.poll();
+            int distance = distances.get(key);
+            for (int row = 0; row < rows - 1; row++) {
+                for (int col = 0; col < cols - 1; col++) {
+                    for (boolean right : new boolean[] {true, false}) {
+                        decode(key, grid);
+                        Revolution.rotate(grid, row, col, right);
+                        long next = encode(grid);
+                        if (!distances.containsKey(next)) {
+                            distances.put(next, distance + 1);
+                            queue.add(next);
+                        }
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static long encode(int[][] grid) {
+        long key = 0;
+        for (int[] row : grid) {
+            for (int tile : row) {
+                key = (key << 4) | tile;
+            }
+        }
+        return key;
+    }
+
+    private static void decode(long key, int[][] grid) {
+        for (int i = grid.length - 1; i >= 0; i--) {
+            for (int j = grid[i].length - 1; j >= 0; j--) {
+                grid[i][j] = (int) (key & 0xF);
+                key >>>= 4;
+            }
+        }
+    }
+}
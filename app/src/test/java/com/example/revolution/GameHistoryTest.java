@@ -0,0 +1,189 @@
+package com.example.revolution;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for GameHistory
+ */
+public class GameHistoryTest {
+    @Test
+    public void undoAndRedo_followTheLine() {
+        GameHistory history = new GameHistory();
+        history.push(2);
+        history.push(4);
+
+        assertEquals(4, history.undo());
+        assertEquals(2, history.undo());
+        assertEquals(GameHistory.NO_MOVE, history.undo());
+
+        assertEquals(2, history.redo());
+        assertEquals(4, history.redo());
+        assertEquals(GameHistory.NO_MOVE, history.redo());
+        assertArrayEquals(new int[] {2, 4}, history.line());
+    }
+
+    @Test
+    public void moveAfterUndo_keepsTheOldBranch() {
+        GameHistory history = new GameHistory();
+        history.push(2);
+        history.push(4);
+        history.undo();
+        history.push(6);
+
+        assertArrayEquals(new int[] {2, 6}, history.line());
+        history.undo();
+        assertEquals(2, history.branches());
+        assertEquals(1, history.redoBranch());
+
+        assertEquals(4, history.redo(0));
+        assertArrayEquals(new int[] {2, 4}, history.line());
+        history.undo();
+        assertEquals(0, history.redoBranch());
+        assertEquals(GameHistory.NO_MOVE, history.redo(2));
+    }
+
+    @Test
+    public void pushingAnExistingMove_reusesItsBranch() {
+        GameHistory history = new GameHistory();
+        history.push(2);
+        history.push(4);
+        history.undo();
+        history.push(4);
+
+        assertEquals(3, history.size());
+        history.undo();
+        assertEquals(1, history.branches());
+    }
+
+    @Test
+    public void prune_keepsTheCurrentLineAndDropsColdBranches() {
+        GameHistory history = new GameHistory(100);
+        for (int i = 0; i < 20; i++) {
+            history.push(2 * i);
+        }
+
+        // Many short branches off the start, each left right away
+        while (history.undo() != GameHistory.NO_MOVE) {
+            // back to the start
+        }
+        for (int i = 1; i <= 1000; i++) {
+            history.push(2 * i + 1);
+            history.undo();
+        }
+        assertTrue(history.size() <= 100);
+
+        // The most recently visited branches survive
+        history.redo();
+        assertEquals(2001, history.lastMove());
+    }
+
+    @Test
+    public void prune_neverDropsTheCurrentLine() {
+        GameHistory history = new GameHistory(10);
+        int[] line = new int[1000];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = 2 * i;
+            history.push(line[i]);
+        }
+
+        assertEquals(line.length + 1, history.size());
+        assertArrayEquals(line, history.line());
+    }
+
+    @Test
+    public void prune_stillRunsAfterTheLineOutgrowsTheLimit() {
+        GameHistory history = new GameHistory(10);
+        for (int i = 0; i < 100; i++) {
+            history.push(2 * i);
+        }
+
+        // Branches off the long line are pruned once the tree has grown enough
+        for (int i = 0; i < 100; i++) {
+            history.push(1);
+            history.undo();
+            history.push(2 * i + 1000);
+        }
+        assertTrue(history.size() < 260);
+        assertEquals(200, history.depth());
+    }
+
+    @Test
+    public void snapshot_restoresEveryBranch() {
+        GameHistory history = new GameHistory();
+        history.push(2);
+        history.push(4);
+        history.push(6);
+        history.undo();
+        history.undo();
+        history.push(8);   // 2 -> 8 is the current line
+        history.push(10);
+        history.undo();
+        history.undo();
+        history.push(12);  // 2 -> 12 is redone from 2
+        history.undo();
+
+        GameHistory.Snapshot snapshot = history.snapshot();
+        GameHistory restored = new GameHistory(snapshot);
+        assertEquals(history.size(), restored.size());
+        assertArrayEquals(history.line(), restored.line());
+        assertSameSnapshot(snapshot, restored.snapshot());
+
+        // The redo branch is still the default, and the others are still there
+        assertEquals(3, restored.branches());
+        assertEquals(12, restored.redo());
+        restored.undo();
+        assertEquals(4, restored.redo(0));
+        assertEquals(6, restored.redo());
+        restored.undo();
+        restored.undo();
+        assertEquals(8, restored.redo(1));
+        assertEquals(10, restored.redo());
+    }
+
+    @Test
+    public void snapshot_ofNewHistory_isJustTheStart() {
+        GameHistory.Snapshot snapshot = new GameHistory().snapshot();
+        assertArrayEquals(new int[] {-1}, snapshot.getParents());
+        assertEquals(0, snapshot.getCursor());
+        assertEquals(1, new GameHistory(snapshot).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void snapshot_rejectsAParentAfterItsChild() {
+        new GameHistory.Snapshot(new int[] {-1, 2, 0}, new int[] {-1, 2, 4},
+                new int[] {-1, -1, -1}, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void snapshot_rejectsARedoChildOfAnotherPosition() {
+        new GameHistory.Snapshot(new int[] {-1, 0, 1}, new int[] {-1, 2, 4},
+                new int[] {2, -1, -1}, 0);
+    }
+
+    @Test
+    public void setMaxNodes_prunesRightAway() {
+        GameHistory history = new GameHistory();
+        for (int i = 1; i <= 50; i++) {
+            history.push(2 * i);
+            history.undo();
+        }
+        assertEquals(51, history.size());
+
+        history.setMaxNodes(8);
+        assertTrue(history.size() <= 8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxNodes_rejectsZero() {
+        new GameHistory(0);
+    }
+
+    private static void assertSameSnapshot(GameHistory.Snapshot expected, GameHistory.Snapshot actual) {
+        assertArrayEquals(expected.getParents(), actual.getParents());
+        assertArrayEquals(expected.getMoves(), actual.getMoves());
+        assertArrayEquals(expected.getRedoChildren(), actual.getRedoChildren());
+        assertEquals(expected.getCursor(), actual.getCursor());
+    }
+}
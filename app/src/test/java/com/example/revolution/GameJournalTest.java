@@ -0,0 +1,191 @@
+package com.example.revolution;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for GameJournal, writing to a temporary directory
+ */
+public class GameJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recover_withoutJournal_returnsNull() {
+        assertNull(recover(folder.getRoot()));
+    }
+
+    @Test
+    public void recover_rebuildsTheGame() {
+        File dir = folder.getRoot();
+        Revolution game = new Revolution(3, 4, 10);
+        GameJournal journal = new GameJournal(dir);
+        journal.start(game);
+        play(game, journal, 100, new Random(1));
+        journal.close();
+
+        assertSameGame(game, recover(dir));
+    }
+
+    @Test
+    public void recover_afterCompactions_rebuildsTheGame() {
+        File dir = folder.getRoot();
+        Revolution game = new Revolution(4, 4, 20);
+        GameJournal journal = new GameJournal(dir);
+        journal.start(game);
+        play(game, journal, 2000, new Random(2));
+
+        // recover reads after the writer is done, so closing first isn't needed
+        assertSameGame(game, recover(dir));
+        journal.close();
+    }
+
+    @Test
+    public void recover_keepsEveryBranchOfTheSnapshot() {
+        File dir = folder.getRoot();
+        Revolution game = new Revolution(3, 3, 5);
+        game.rotateRight(0, 0);
+        game.rotateRight(1, 0);
+        game.undo();
+        game.rotateLeft(1, 1);
+        game.rotateRight(0, 1);
+        game.undo();
+        game.undo();
+
+        GameJournal journal = new GameJournal(dir);
+        journal.start(game);
+        journal.close();
+
+        Revolution recovered = recover(dir);
+        assertSameGame(game, recovered);
+        assertTrue(recovered.redo());
+        assertEquals(Revolution.encodeMove(1, 1, false), recovered.lastMove());
+
+        // The first branch, which redo no longer follows, is still there
+        recovered.undo();
+        assertEquals(2, recovered.branches());
+        assertTrue(recovered.redo(0));
+        assertEquals(Revolution.encodeMove(1, 0, true), recovered.lastMove());
+    }
+
+    @Test
+    public void recover_ignoresATornTail() throws IOException {
+        File dir = folder.getRoot();
+        Revolution game = new Revolution(3, 3, 10);
+        GameJournal journal = new GameJournal(dir);
+        journal.start(game);
+        play(game, journal, 50, new Random(3));
+        journal.close();
+        assertSameGame(game, recover(dir));
+
+        // Half of an entry, as if the app died mid-write
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "journal.bin"), true)) {
+            out.write(new byte[] {0, 1});
+        }
+        assertSameGame(game, recover(dir));
+    }
+
+    @Test
+    public void recover_stopsAtAnInvalidEntry() throws IOException {
+        File dir = folder.getRoot();
+        Revolution game = new Revolution(3, 3, 10);
+        GameJournal journal = new GameJournal(dir);
+        journal.start(game);
+        play(game, journal, 20, new Random(4));
+        journal.close();
+        assertSameGame(game, recover(dir));
+
+        // A move anchored outside the board, followed by a valid one
+        int outside = Revolution.encodeMove(5, 5, true);
+        int valid = Revolution.encodeMove(0, 0, true);
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "journal.bin"), true)) {
+            out.write(toBytes(outside));
+            out.write(toBytes(valid));
+        }
+        assertSameGame(game, recover(dir));
+    }
+
+    @Test
+    public void recover_callsBackOnTheGivenExecutor() throws InterruptedException {
+        Thread[] callbackThread = new Thread[1];
+        CountDownLatch done = new CountDownLatch(1);
+        GameJournal.recover(folder.getRoot(), runnable -> {
+            callbackThread[0] = Thread.currentThread();
+            runnable.run();
+        }, game -> done.countDown());
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), callbackThread[0]);
+    }
+
+    /**
+     * Recovers the journal in the given directory, waiting for the result
+     */
+    private static Revolution recover(File dir) {
+        AtomicReference<Revolution> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        GameJournal.recover(dir, Runnable::run, game -> {
+            result.set(game);
+            done.countDown();
+        });
+
+        try {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        return result.get();
+    }
+
+    /**
+     * Makes random moves and undos, recording each in the journal
+     */
+    private static void play(Revolution game, GameJournal journal, int actions, Random random) {
+        for (int i = 0; i < actions; i++) {
+            if (random.nextInt(4) == 0) {
+                if (game.undo()) journal.recordUndo(game);
+            } else {
+                int row = random.nextInt(game.getRows() - 1);
+                int col = random.nextInt(game.getCols() - 1);
+                if (random.nextBoolean()) {
+                    game.rotateRight(row, col);
+                } else {
+                    game.rotateLeft(row, col);
+                }
+                journal.recordMove(game);
+            }
+        }
+    }
+
+    private static void assertSameGame(Revolution expected, Revolution actual) {
+        assertNotNull(actual);
+        assertArrayEquals(expected.getStartGrid(), actual.getStartGrid());
+        assertArrayEquals(expected.getMoveList(), actual.getMoveList());
+        GameHistory.Snapshot expectedHistory = expected.getHistory();
+        GameHistory.Snapshot actualHistory = actual.getHistory();
+        assertArrayEquals(expectedHistory.getParents(), actualHistory.getParents());
+        assertArrayEquals(expectedHistory.getMoves(), actualHistory.getMoves());
+        assertArrayEquals(expectedHistory.getRedoChildren(), actualHistory.getRedoChildren());
+        assertEquals(expectedHistory.getCursor(), actualHistory.getCursor());
+        for (int i = 0; i < expected.getRows(); i++) {
+            for (int j = 0; j < expected.getCols(); j++) {
+                assertEquals(expected.get(i, j), actual.get(i, j));
+            }
+        }
+    }
+
+    private static byte[] toBytes(int value) {
+        return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+}
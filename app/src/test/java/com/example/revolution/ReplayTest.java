@@ -0,0 +1,133 @@
+package com.example.revolution;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for Replay
+ */
+public class ReplayTest {
+    @Test
+    public void fromGame_endsAtTheCurrentGrid() {
+        Revolution game = randomGame(3, 3, 40, new Random(1));
+        Replay replay = Replay.fromGame(game);
+
+        assertTrue(replay.atStart());
+        assertEquals(game.moves(), replay.length());
+        replay.seek(replay.length());
+        assertTrue(replay.atEnd());
+        assertSameGrid(game, replay);
+    }
+
+    @Test
+    public void seek_matchesTheMovesPlayedOnAFreshGame() {
+        Revolution game = randomGame(3, 4, 100, new Random(2));
+        int[] moves = game.getMoveList();
+        int[][] grids = new int[moves.length + 1][];
+
+        // The grid after each move, found by replaying the moves on a fresh game
+        Revolution replayed = new Revolution(game.getStartGrid(), new int[0]);
+        grids[0] = flatten(replayed);
+        for (int i = 0; i < moves.length; i++) {
+            int row = Revolution.moveRow(moves[i]);
+            int col = Revolution.moveCol(moves[i]);
+            if (Revolution.isRightMove(moves[i])) {
+                replayed.rotateRight(row, col);
+            } else {
+                replayed.rotateLeft(row, col);
+            }
+            grids[i + 1] = flatten(replayed);
+        }
+
+        // Seeking in any order, forward and back, lands on the same grids
+        Replay replay = new Replay(game.getStartGrid(), game.getMoveList(), 8);
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            int index = random.nextInt(grids.length);
+            replay.seek(index);
+            assertEquals(index, replay.position());
+            assertArrayEquals(grids[index], flatten(replay));
+        }
+    }
+
+    @Test
+    public void stepBackward_undoesStepForward() {
+        Revolution game = randomGame(4, 4, 30, new Random(4));
+        Replay replay = Replay.fromGame(game);
+        replay.seek(replay.length());
+
+        while (replay.stepBackward()) {
+            // back to the start
+        }
+        assertTrue(replay.atStart());
+        assertFalse(replay.stepBackward());
+
+        int[][] start = game.getStartGrid();
+        for (int i = 0; i < replay.getRows(); i++) {
+            for (int j = 0; j < replay.getCols(); j++) {
+                assertEquals(start[i][j], replay.get(i, j));
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void seek_pastTheEnd_throws() {
+        Revolution game = randomGame(3, 3, 5, new Random(5));
+        Replay.fromGame(game).seek(game.moves() + 1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void seek_beforeTheStart_throws() {
+        Revolution game = randomGame(3, 3, 5, new Random(6));
+        Replay.fromGame(game).seek(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsAnAnchorOnTheLastRow() {
+        int[][] start = new Revolution(3, 3, 5).getStartGrid();
+        new Replay(start, new int[] {Revolution.encodeMove(0, 0, true), Revolution.encodeMove(2, 0, true)});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsAnAnchorOnTheLastCol() {
+        int[][] start = new Revolution(3, 4, 5).getStartGrid();
+        new Replay(start, new int[] {Revolution.encodeMove(1, 3, false)});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsANegativeMove() {
+        int[][] start = new Revolution(3, 3, 5).getStartGrid();
+        new Replay(start, new int[] {GameHistory.NO_MOVE});
+    }
+
+    private static Revolution randomGame(int rows, int cols, int moves, Random random) {
+        Revolution game = new Revolution(rows, cols, 10);
+        for (int i = 0; i < moves; i++) {
+            int row = random.nextInt(rows - 1);
+            int col = random.nextInt(cols - 1);
+            if (random.nextBoolean()) {
+                game.rotateRight(row, col);
+            } else {
+                game.rotateLeft(row, col);
+            }
+        }
+        return game;
+    }
+
+    private static int[] flatten(Board board) {
+        int[] tiles = new int[board.getRows() * board.getCols()];
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getCols(); j++) {
+                tiles[i * board.getCols() + j] = board.get(i, j);
+            }
+        }
+        return tiles;
+    }
+
+    private static void assertSameGrid(Board expected, Board actual) {
+        assertArrayEquals(flatten(expected), flatten(actual));
+    }
+}
@@ -0,0 +1,474 @@
+package com.example.revolution;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Measures how deep the puzzles made by Revolution's scramble really are
+ *
+ * For every (rows, cols, solDepth) combination, scrambles many boards exactly the way
+ * a new game does, and measures how far each one is from solved: exactly when a
+ * DistanceTable can be built for the board (e.g. 3x3), otherwise as a lower bound of
+ * the total Manhattan distance / 4 (each rotation moves four tiles one step). Samples
+ * are split into chunks run in parallel on all cores.
+ *
+ * Reports, per combination, the distance distribution, the fraction of boards
+ * shallower than solDepth, and how many of the board's symmetry classes were reached.
+ * Per board size, the plateau is the first solDepth whose mean distance is within 1%
+ * of the largest mean seen. Lower bounds say little about how deep a board really is,
+ * so they go in their own lowerBound* columns, plateau included, and the shallow
+ * fraction and classes are left empty for them.
+ *
+ * For every board, the number of distinct grids scrambled is estimated with a
+ * HyperLogLog sketch (about 1% error), and compared to the number of grids the board
+ * can reach when that is known: all (rows * cols)! of them once both sides are at
+ * least 3, since the 3x3 windows each reach every permutation of their tiles.
+ *
+ * Runs on the development machine through Gradle, e.g.
+ *   ./gradlew :app:scrambleAnalysis --args="--rows 3-5 --cols 3-5 --depths 1-50 --format csv --out sweep.csv"
+ *
+ * @author Sam Kapp
+ */
+public class ScrambleAnalysis {
+    private static final int CHUNK_SIZE = 1 << 14;
+    private static final double PLATEAU_FRACTION = 0.99;
+
+    // Columns for the distance distribution, prefixed with lowerBound for lower bounds
+    private static final String[] STAT_COLUMNS = {"mean", "stddev", "min", "p50", "p90", "max",
+            "plateauDepth", "histogram"};
+    private static final String[] EXACT_COLUMNS = {"shallowFraction", "classesSeen", "classes",
+            "coverage"};
+
+    /**
+     * Distance distribution of the scrambles of one (rows, cols, solDepth) combination
+     */
+    static final class Result {
+        final int rows;
+        final int cols;
+        final int solDepth;
+        final boolean exact;
+        final long[] histogram; // histogram[d] is the number of boards at distance d
+        long samples;
+        long classesSeen = -1;  // only for exact boards
+        long classes = -1;
+        long statesSeen;        // estimated number of distinct grids
+        double states = -1;     // grids the board can reach, -1 if unknown
+        int plateau;
+
+        Result(int rows, int cols, int solDepth, boolean exact, int maxDistance) {
+            this.rows = rows;
+            this.cols = cols;
+            this.solDepth = solDepth;
+            this.exact = exact;
+            this.histogram = new long[maxDistance + 1];
+        }
+
+        double mean() {
+            double sum = 0;
+            for (int d = 0; d < histogram.length; d++) sum += (double) d * histogram[d];
+            return sum / samples;
+        }
+
+        double stddev() {
+            double mean = mean();
+            double sum = 0;
+            for (int d = 0; d < histogram.length; d++) sum += (d - mean) * (d - mean) * histogram[d];
+            return Math.sqrt(sum / samples);
+        }
+
+        int min() {
+            for (int d = 0; d < histogram.length; d++) if (histogram[d] > 0) return d;
+            return 0;
+        }
+
+        int max() {
+            for (int d = histogram.length - 1; d > 0; d--) if (histogram[d] > 0) return d;
+            return 0;
+        }
+
+        /**
+         * @return the smallest distance at or below which the given fraction of boards lie
+         */
+        int percentile(double fraction) {
+            long target = (long) Math.ceil(fraction * samples);
+            long count = 0;
+            for (int d = 0; d < histogram.length; d++) {
+                count += histogram[d];
+                if (count >= target) return d;
+            }
+            return max();
+        }
+
+        /**
+         * @return the fraction of boards fewer moves from solved than solDepth
+         */
+        double shallowFraction() {
+            long count = 0;
+            for (int d = 0; d < Math.min(solDepth, histogram.length); d++) count += histogram[d];
+            return (double) count / samples;
+        }
+
+        double coverage() {
+            return classes > 0 ? (double) classesSeen / classes : -1;
+        }
+
+        double stateCoverage() {
+            return states > 0 ? statesSeen / states : -1;
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values added, in fixed memory (HyperLogLog)
+     */
+    static final class DistinctCounter {
+        private static final int PRECISION = 14;
+        private static final int REGISTERS = 1 << PRECISION;
+
+        private final byte[] registers = new byte[REGISTERS];
+
+        /**
+         * @param hash a well mixed 64-bit hash of the value
+         */
+        void add(long hash) {
+            int index = (int) (hash >>> (64 - PRECISION));
+            int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+            if (rank > registers[index]) registers[index] = (byte) rank;
+        }
+
+        /**
+         * Adds everything counted by other to this counter
+         */
+        DistinctCounter merge(DistinctCounter other) {
+            for (int i = 0; i < REGISTERS; i++) {
+                if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+            }
+            return this;
+        }
+
+        long estimate() {
+            double sum = 0;
+            int zeros = 0;
+            for (byte register : registers) {
+                sum += Math.scalb(1.0, -register);
+                if (register == 0) zeros++;
+            }
+            double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+            double estimate = alpha * REGISTERS * REGISTERS / sum;
+
+            // Small counts are more accurate from the number of empty registers
+            if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+                estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+            }
+            return Math.round(estimate);
+        }
+    }
+
+    /**
+     * What one chunk of samples found, merged with the other chunks' at the end
+     */
+    private static final class Tally {
+        final long[] histogram;
+        final long[] classesSeen; // bitset by DistanceTable.classIndex, null for lower bounds
+        final DistinctCounter states = new DistinctCounter();
+
+        Tally(int maxDistance, DistanceTable table) {
+            histogram = new long[maxDistance + 1];
+            classesSeen = table != null ? new long[(table.capacity() + 63) / 64] : null;
+        }
+
+        Tally merge(Tally other) {
+            for (int d = 0; d < histogram.length; d++) histogram[d] += other.histogram[d];
+            if (classesSeen != null) {
+                for (int i = 0; i < classesSeen.length; i++) classesSeen[i] |= other.classesSeen[i];
+            }
+            states.merge(other.states);
+            return this;
+        }
+    }
+
+    public static void main(String[] args) throws FileNotFoundException {
+        int[] rows = {3, 5};
+        int[] cols = {3, 5};
+        int[] depths = {1, 50};
+        long samples = 1_000_000;
+        String format = "csv";
+        PrintStream out = System.out;
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("missing value for option " + args[i]);
+            }
+            switch (args[i]) {
+                case "--rows": rows = range(args[i + 1]); break;
+                case "--cols": cols = range(args[i + 1]); break;
+                case "--depths": depths = range(args[i + 1]); break;
+                case "--samples": samples = Long.parseLong(args[i + 1]); break;
+                case "--format": format = args[i + 1]; break;
+                case "--out": out = new PrintStream(args[i + 1]); break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        long startTime = System.nanoTime();
+        for (int r = rows[0]; r <= rows[1]; r++) {
+            for (int c = cols[0]; c <= cols[1]; c++) {
+                results.addAll(analyzeBoard(r, c, depths[0], depths[1], samples));
+                System.err.printf(Locale.ROOT, "%dx%d done after %.1fs%n",
+                        r, c, (System.nanoTime() - startTime) / 1e9);
+            }
+        }
+
+        if (format.equals("json")) {
+            writeJson(results, out);
+        } else {
+            writeCsv(results, out);
+        }
+        out.flush();
+        if (out != System.out) out.close();
+    }
+
+    /**
+     * Analyzes every solDepth in [minDepth, maxDepth] for one board size
+     */
+    static List<Result> analyzeBoard(int rows, int cols, int minDepth, int maxDepth, long samples) {
+        DistanceTable table = rows * cols <= DistanceTable.MAX_CELLS
+                ? new DistanceTable(rows, cols) : null;
+
+        List<Result> results = new ArrayList<>();
+        for (int depth = minDepth; depth <= maxDepth; depth++) {
+            results.add(analyze(rows, cols, depth, samples, table));
+        }
+
+        int plateau = plateau(results);
+        for (Result result : results) {
+            result.plateau = plateau;
+        }
+        return results;
+    }
+
+    /**
+     * The plateau is where deeper scrambles stop producing deeper puzzles: the first
+     * solDepth whose mean is within 1% of the largest mean. For lower bounds, it is
+     * where the lower bound stops growing, which may come before the real distances do.
+     *
+     * @param results the results of one board size, by increasing solDepth
+     */
+    static int plateau(List<Result> results) {
+        double largestMean = 0;
+        for (Result result : results) {
+            largestMean = Math.max(largestMean, result.mean());
+        }
+        for (Result result : results) {
+            if (result.mean() >= PLATEAU_FRACTION * largestMean) return result.solDepth;
+        }
+        return results.get(results.size() - 1).solDepth;
+    }
+
+    /**
+     * Scrambles samples boards with the given solDepth and measures their distances
+     */
+    static Result analyze(int rows, int cols, int solDepth, long samples, DistanceTable table) {
+        boolean exact = table != null;
+        int maxDistance = exact ? table.maxDistance() : maxLowerBound(rows, cols);
+        Result result = new Result(rows, cols, solDepth, exact, maxDistance);
+
+        // Each chunk keeps its own grid and tally, so workers share nothing until the
+        // tallies are merged
+        int chunks = (int) ((samples + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        Tally total = IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            long count = Math.min(CHUNK_SIZE, samples - (long) chunk * CHUNK_SIZE);
+            Tally tally = new Tally(maxDistance, table);
+            int[][] grid = new int[rows][cols];
+
+            for (long n = 0; n < count; n++) {
+                Revolution.scramble(grid, solDepth);
+                tally.states.add(hash(grid));
+                if (exact) {
+                    tally.histogram[table.distance(grid)]++;
+                    int index = table.classIndex(grid);
+                    tally.classesSeen[index >>> 6] |= 1L << index;
+                } else {
+                    tally.histogram[lowerBound(grid)]++;
+                }
+            }
+            return tally;
+        }).reduce(Tally::merge).orElseGet(() -> new Tally(maxDistance, table));
+
+        System.arraycopy(total.histogram, 0, result.histogram, 0, total.histogram.length);
+        result.samples = samples;
+        result.statesSeen = total.states.estimate();
+        result.states = reachableStates(rows, cols);
+
+        if (exact) {
+            long classesSeen = 0;
+            for (long word : total.classesSeen) classesSeen += Long.bitCount(word);
+            result.classesSeen = classesSeen;
+            result.classes = table.size();
+        }
+        return result;
+    }
+
+    /**
+     * @return a well mixed 64-bit hash of the grid's tiles
+     */
+    static long hash(int[][] grid) {
+        long hash = 0;
+        for (int[] row : grid) {
+            for (int tile : row) {
+                hash = (hash + tile) * 0x9E3779B97F4A7C15L;
+            }
+        }
+        // SplitMix64 finalizer
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * @return the number of grids the board can reach, or -1 if unknown
+     */
+    static double reachableStates(int rows, int cols) {
+        if (rows < 3 || cols < 3) return -1;
+
+        double states = 1;
+        for (int i = 2; i <= rows * cols; i++) states *= i;
+        return states;
+    }
+
+    /**
+     * @return a lower bound on the moves needed to solve the grid: a rotation moves
+     * four tiles one step each, so it lowers the total Manhattan distance by at most 4
+     */
+    static int lowerBound(int[][] grid) {
+        int cols = grid[0].length;
+        int total = 0;
+        for (int i = 0; i < grid.length; i++) {
+            for (int j = 0; j < cols; j++) {
+                int home = grid[i][j] - 1;
+                total += Math.abs(home / cols - i) + Math.abs(home % cols - j);
+            }
+        }
+        return (total + 3) / 4;
+    }
+
+    private static int maxLowerBound(int rows, int cols) {
+        return (rows * cols * (rows + cols - 2) + 3) / 4;
+    }
+
+    private static void writeCsv(List<Result> results, PrintStream out) {
+        List<String> header = new ArrayList<>();
+        Collections.addAll(header, "rows", "cols", "solDepth", "samples", "exact",
+                "statesSeen", "stateCoverage");
+        Collections.addAll(header, STAT_COLUMNS);
+        Collections.addAll(header, EXACT_COLUMNS);
+        for (String column : STAT_COLUMNS) header.add(lowerBoundName(column));
+        out.println(String.join(",", header));
+
+        for (Result r : results) {
+            List<String> row = new ArrayList<>();
+            Collections.addAll(row, String.valueOf(r.rows), String.valueOf(r.cols),
+                    String.valueOf(r.solDepth), String.valueOf(r.samples), String.valueOf(r.exact),
+                    String.valueOf(r.statesSeen), r.states > 0 ? formatCoverage(r.stateCoverage()) : "");
+            String[] stats = statValues(r, ";");
+            String[] empty = new String[STAT_COLUMNS.length];
+            Arrays.fill(empty, "");
+
+            // Only one of the two groups of distance columns is filled in
+            Collections.addAll(row, r.exact ? stats : empty);
+            if (r.exact) {
+                Collections.addAll(row, exactValues(r));
+            } else {
+                for (int i = 0; i < EXACT_COLUMNS.length; i++) row.add("");
+            }
+            Collections.addAll(row, r.exact ? empty : stats);
+            out.println(String.join(",", row));
+        }
+    }
+
+    private static void writeJson(List<Result> results, PrintStream out) {
+        out.println("[");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            StringBuilder json = new StringBuilder();
+            json.append(String.format(Locale.ROOT,
+                    "  {\"rows\": %d, \"cols\": %d, \"solDepth\": %d, \"samples\": %d, \"exact\": %b, "
+                            + "\"statesSeen\": %d, \"stateCoverage\": %s",
+                    r.rows, r.cols, r.solDepth, r.samples, r.exact, r.statesSeen,
+                    r.states > 0 ? formatCoverage(r.stateCoverage()) : "null"));
+
+            String[] stats = statValues(r, ", ");
+            for (int j = 0; j < STAT_COLUMNS.length; j++) {
+                String name = r.exact ? STAT_COLUMNS[j] : lowerBoundName(STAT_COLUMNS[j]);
+                String value = STAT_COLUMNS[j].equals("histogram") ? "[" + stats[j] + "]" : stats[j];
+                json.append(", \"").append(name).append("\": ").append(value);
+            }
+            String[] exactValues = r.exact ? exactValues(r) : null;
+            for (int j = 0; j < EXACT_COLUMNS.length; j++) {
+                json.append(", \"").append(EXACT_COLUMNS[j]).append("\": ")
+                        .append(exactValues != null ? exactValues[j] : "null");
+            }
+
+            json.append('}');
+            if (i + 1 < results.size()) json.append(',');
+            out.println(json);
+        }
+        out.println("]");
+    }
+
+    /**
+     * @return the values of STAT_COLUMNS for the result, with the histogram joined by separator
+     */
+    private static String[] statValues(Result r, String separator) {
+        StringBuilder histogram = new StringBuilder();
+        for (int d = 0; d <= r.max(); d++) {
+            if (d > 0) histogram.append(separator);
+            histogram.append(r.histogram[d]);
+        }
+        return new String[] {
+                String.format(Locale.ROOT, "%.4f", r.mean()),
+                String.format(Locale.ROOT, "%.4f", r.stddev()),
+                String.valueOf(r.min()), String.valueOf(r.percentile(0.5)),
+                String.valueOf(r.percentile(0.9)), String.valueOf(r.max()),
+                String.valueOf(r.plateau), histogram.toString()
+        };
+    }
+
+    /**
+     * @return the values of EXACT_COLUMNS for an exact result
+     */
+    private static String[] exactValues(Result r) {
+        return new String[] {
+                String.format(Locale.ROOT, "%.6f", r.shallowFraction()),
+                String.valueOf(r.classesSeen), String.valueOf(r.classes),
+                formatCoverage(r.coverage())
+        };
+    }
+
+    /**
+     * Formats a fraction that may be far below 1e-6, e.g. of 25! grids
+     */
+    private static String formatCoverage(double fraction) {
+        return String.format(Locale.ROOT, "%.6g", fraction);
+    }
+
+    private static String lowerBoundName(String column) {
+        return "lowerBound" + Character.toUpperCase(column.charAt(0)) + column.substring(1);
+    }
+
+    /**
+     * Parses "a-b" or "a" into {a, b}
+     */
+    private static int[] range(String value) {
+        String[] parts = value.split("-");
+        int low = Integer.parseInt(parts[0]);
+        int high = parts.length > 1 ? Integer.parseInt(parts[1]) : low;
+        return new int[] {low, high};
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.revolution;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the statistics reported by ScrambleAnalysis
+ */
+public class ScrambleAnalysisTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void lowerBound_ofSolvedGrid_isZero() {
+        assertEquals(0, ScrambleAnalysis.lowerBound(new int[][] {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}}));
+    }
+
+    @Test
+    public void lowerBound_ofOneRotation_isOne() {
+        int[][] grid = {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}};
+        Revolution.rotate(grid, 1, 1, true);
+        assertEquals(1, ScrambleAnalysis.lowerBound(grid));
+    }
+
+    @Test
+    public void lowerBound_roundsUp() {
+        // 1 and 2 swapped: total Manhattan distance 2, so at least one move
+        assertEquals(1, ScrambleAnalysis.lowerBound(new int[][] {{2, 1}, {3, 4}}));
+
+        // 1 and 9 swapped: each is 4 steps from home, so at least two moves
+        assertEquals(2, ScrambleAnalysis.lowerBound(new int[][] {{9, 2, 3}, {4, 5, 6}, {7, 8, 1}}));
+    }
+
+    @Test
+    public void distributionStats_ofHandBuiltHistogram() {
+        // 10 boards: 1 at distance 0, 2 at 1, 3 at 2, 4 at 3
+        ScrambleAnalysis.Result result = result(3, 1, 2, 3, 4);
+
+        assertEquals(2.0, result.mean(), DELTA);
+        assertEquals(1.0, result.stddev(), DELTA);
+        assertEquals(0, result.min());
+        assertEquals(3, result.max());
+        assertEquals(0, result.percentile(0.1));
+        assertEquals(1, result.percentile(0.3));
+        assertEquals(2, result.percentile(0.5));
+        assertEquals(3, result.percentile(0.61));
+        assertEquals(3, result.percentile(0.9));
+        assertEquals(3, result.percentile(1.0));
+    }
+
+    @Test
+    public void shallowFraction_countsBoardsCloserThanSolDepth() {
+        assertEquals(0.3, result(2, 1, 2, 3, 4).shallowFraction(), DELTA);
+        assertEquals(0.0, result(0, 1, 2, 3, 4).shallowFraction(), DELTA);
+        assertEquals(1.0, result(9, 1, 2, 3, 4).shallowFraction(), DELTA);
+    }
+
+    @Test
+    public void plateau_isFirstDepthWithinOnePercentOfLargestMean() {
+        List<ScrambleAnalysis.Result> results = Arrays.asList(
+                meanResult(1, 1.0), meanResult(2, 2.0), meanResult(3, 2.985),
+                meanResult(4, 3.0), meanResult(5, 2.99));
+        assertEquals(3, ScrambleAnalysis.plateau(results));
+    }
+
+    @Test
+    public void plateau_ofStillGrowingMeans_isLastDepth() {
+        List<ScrambleAnalysis.Result> results = Arrays.asList(
+                meanResult(1, 1.0), meanResult(2, 2.0), meanResult(3, 3.0));
+        assertEquals(3, ScrambleAnalysis.plateau(results));
+    }
+
+    @Test
+    public void distinctCounter_isExactForFewValues() {
+        ScrambleAnalysis.DistinctCounter counter = new ScrambleAnalysis.DistinctCounter();
+        for (int i = 0; i < 100; i++) {
+            counter.add(ScrambleAnalysis.hash(new int[][] {{i % 8}}));
+        }
+        assertEquals(8, counter.estimate());
+    }
+
+    @Test
+    public void distinctCounter_isWithinAFewPercentAfterMerging() {
+        ScrambleAnalysis.DistinctCounter a = new ScrambleAnalysis.DistinctCounter();
+        ScrambleAnalysis.DistinctCounter b = new ScrambleAnalysis.DistinctCounter();
+        for (int i = 0; i < 200_000; i++) {
+            a.add(ScrambleAnalysis.hash(new int[][] {{i, 1}}));
+            b.add(ScrambleAnalysis.hash(new int[][] {{i + 100_000, 1}}));
+        }
+
+        long estimate = a.merge(b).estimate();
+        assertEquals(300_000, estimate, 300_000 * 0.03);
+    }
+
+    @Test
+    public void reachableStates_isKnownOnlyForBoardsAtLeast3x3() {
+        assertEquals(362880, ScrambleAnalysis.reachableStates(3, 3), DELTA);
+        assertEquals(479001600, ScrambleAnalysis.reachableStates(3, 4), DELTA);
+        assertEquals(-1, ScrambleAnalysis.reachableStates(2, 4), DELTA);
+    }
+
+    @Test
+    public void analyze_oneMoveScrambles_on3x3() {
+        DistanceTable table = new DistanceTable(3, 3);
+        ScrambleAnalysis.Result result = ScrambleAnalysis.analyze(3, 3, 1, 20_000, table);
+
+        // Every board is one of the 8 rotations, one move from solved
+        assertEquals(20_000, result.samples);
+        assertEquals(20_000, result.histogram[1]);
+        assertEquals(8, result.statesSeen);
+        assertEquals(1, result.classesSeen);
+        assertEquals(table.size(), result.classes);
+    }
+
+    @Test
+    public void analyze_withoutTable_usesLowerBounds() {
+        ScrambleAnalysis.Result result = ScrambleAnalysis.analyze(3, 4, 1, 1000, null);
+
+        assertFalse(result.exact);
+        assertEquals(1000, result.histogram[1]);
+        assertEquals(12, result.statesSeen);
+        assertEquals(-1, result.classesSeen);
+    }
+
+    /**
+     * @return an exact result with the given histogram
+     */
+    private static ScrambleAnalysis.Result result(int solDepth, long... histogram) {
+        ScrambleAnalysis.Result result =
+                new ScrambleAnalysis.Result(3, 3, solDepth, true, histogram.length - 1);
+        System.arraycopy(histogram, 0, result.histogram, 0, histogram.length);
+        for (long count : histogram) result.samples += count;
+        return result;
+    }
+
+    /**
+     * @return a result whose mean distance is the given mean, from two distances around it
+     */
+    private static ScrambleAnalysis.Result meanResult(int solDepth, double mean) {
+        int low = (int) Math.floor(mean);
+        long high = Math.round((mean - low) * 1000);
+        long[] histogram = new long[low + 2];
+        histogram[low] = 1000 - high;
+        histogram[low + 1] = high;
+        return result(solDepth, histogram);
+    }
+}